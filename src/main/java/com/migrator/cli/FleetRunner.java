@@ -0,0 +1,231 @@
+package com.migrator.cli;
+
+import com.migrator.core.db.DatabaseConnector;
+import com.migrator.core.db.DbVersionRepository;
+import com.migrator.core.db.ScriptExecutor;
+import com.migrator.core.db.impl.MigrationLock;
+import com.migrator.core.db.impl.MigrationService;
+import com.migrator.core.db.impl.ScriptLoader;
+import com.migrator.factory.DatabaseComponentFactory;
+import com.migrator.factory.DatabaseConnectorFactory;
+import com.migrator.factory.FailureStrategyFactory;
+import com.migrator.factory.MigrationLockFactory;
+import com.migrator.model.DbConfig;
+import com.migrator.model.ExecutorOptions;
+import com.migrator.model.MigrationScript;
+import com.migrator.model.RunReport;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Migrates many databases in one process.
+ *
+ * Responsibilities:
+ * -----------------
+ * - Load and hash the script set once for all targets
+ * - Run every target on its own virtual thread
+ * - Limit concurrent migrations per database host
+ * - Print a per-target summary
+ *
+ * Each target gets its own MigrationLock (on a dedicated connection),
+ * connection, DbVersionRepository and ScriptExecutor, and its own copy
+ * of the scripts, so targets share nothing but file content and
+ * checksums. Executors and locks take the same settings as a
+ * single-database run.
+ * A failing target does not stop the others.
+ *
+ * Run report and metrics file are written once per target, with the
+ * target name inserted before the extension (metrics.prom becomes
+ * metrics-acme.prom).
+ */
+public class FleetRunner {
+
+    private final ScriptLoader loader;
+    private final int maxPerHost;
+    private final ExecutorOptions options;
+    private final long lockTimeoutMillis;
+
+    /** Per-target output files, derived from these; null when not requested */
+    private Path reportFile;
+    private Path metricsFile;
+
+    /** One permit pool per database host */
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    /**
+     * @param loader     Loader of the shared script set
+     * @param maxPerHost Maximum number of targets migrated at once on one host
+     * @param options           Settings applied to every executor
+     * @param lockTimeoutMillis Maximum wait for the migration lock of a target
+     */
+    public FleetRunner(ScriptLoader loader, int maxPerHost, ExecutorOptions options, long lockTimeoutMillis) {
+        if (maxPerHost < 1) {
+            throw new IllegalArgumentException("maxPerHost must be at least 1");
+        }
+        this.loader = loader;
+        this.maxPerHost = maxPerHost;
+        this.options = options;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+    }
+
+    /**
+     * Writes a run report and/or a metrics file for every target.
+     *
+     * @param reportFile  --report file, or null
+     * @param metricsFile --metrics.file file, or null
+     */
+    public void setOutputs(Path reportFile, Path metricsFile) {
+        this.reportFile = reportFile;
+        this.metricsFile = metricsFile;
+    }
+
+    /**
+     * Migrates all targets and prints the summary.
+     *
+     * @throws IllegalStateException when at least one target failed
+     * @throws Exception             when the scripts cannot be loaded
+     */
+    public void run(List<FleetTarget> targets) throws Exception {
+
+        System.out.println("Loading migration scripts...");
+        List<MigrationScript> scripts = loader.loadScripts();
+        loader.preload(scripts);
+        System.out.println("Loaded " + scripts.size() + " script(s) for " + targets.size() + " target(s)");
+
+        List<Future<TargetResult>> futures = new ArrayList<>();
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (FleetTarget target : targets) {
+                futures.add(threads.submit(() -> migrateTarget(target, scripts)));
+            }
+        }
+
+        List<TargetResult> results = new ArrayList<>();
+        for (Future<TargetResult> future : futures) {
+            results.add(future.get());
+        }
+
+        printSummary(results);
+
+        long failed = results.stream().filter(r -> r.error() != null).count();
+        if (failed > 0) {
+            throw new IllegalStateException(failed + " of " + results.size() + " target(s) failed");
+        }
+    }
+
+    /**
+     * Migrates one target, waiting for a free slot on its host first.
+     * Never throws: failures are returned in the result.
+     */
+    private TargetResult migrateTarget(FleetTarget target, List<MigrationScript> scripts) {
+        DbConfig config = target.config();
+        Semaphore permits = hostPermits.computeIfAbsent(config.host(), host -> new Semaphore(maxPerHost));
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new TargetResult(target.name(), 0, 0, e);
+        }
+
+        long start = System.nanoTime();
+        RunReport report = reportFile != null || metricsFile != null
+                ? new RunReport(config.type().name().toLowerCase(), config.host(), config.database())
+                : null;
+        Exception failure = null;
+
+        DatabaseConnector connector = DatabaseConnectorFactory.create(config.type());
+        try (Connection lockConnection = connector.connect(config);
+             Connection connection = connector.connect(config)) {
+
+            MigrationLock lock = MigrationLockFactory.create(config.type().name(), lockConnection, lockTimeoutMillis);
+            System.out.println("[" + target.name() + "] Acquiring migration lock...");
+            long lockStart = System.nanoTime();
+            try {
+                lock.acquire();
+            } finally {
+                if (report != null) {
+                    report.recordLockWait(System.nanoTime() - lockStart);
+                }
+            }
+
+            try (DbVersionRepository repository = DatabaseComponentFactory.createRepository(config.type(), connection)) {
+
+                ScriptExecutor executor = DatabaseComponentFactory.createExecutor(config.type(), connection, options);
+
+                MigrationService service = new MigrationService(loader, repository, executor);
+                service.setReport(report);
+                int applied = service.migrate(connection,
+                        FailureStrategyFactory.from(config.failureStrategy()),
+                        scripts.stream().map(MigrationScript::copy).toList());
+
+                return new TargetResult(target.name(), applied, elapsedMillis(start), null);
+            } finally {
+                lock.release();
+            }
+
+        } catch (Exception e) {
+            failure = e;
+            System.out.println("[" + target.name() + "] Migration failed: " + e.getMessage());
+            return new TargetResult(target.name(), 0, elapsedMillis(start), e);
+        } finally {
+            if (report != null) {
+                MigrationRunner.writeOutputs(report, forTarget(reportFile, target), forTarget(metricsFile, target), failure);
+            }
+            permits.release();
+        }
+    }
+
+    /**
+     * @return File of the target: the name, made file-safe, inserted
+     *         before the extension; null when file is null
+     */
+    static Path forTarget(Path file, FleetTarget target) {
+        if (file == null) {
+            return null;
+        }
+        String safe = target.name().replaceAll("[^A-Za-z0-9._-]", "_");
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String targetName = dot > 0
+                ? name.substring(0, dot) + "-" + safe + name.substring(dot)
+                : name + "-" + safe;
+        return file.resolveSibling(targetName);
+    }
+
+    private static void printSummary(List<TargetResult> results) {
+        System.out.println();
+        System.out.println("Fleet summary:");
+        for (TargetResult result : results) {
+            String status = result.error() == null ? "OK    " : "FAILED";
+            String detail = result.error() == null
+                    ? result.applied() + " applied"
+                    : result.error().getMessage();
+            System.out.println("  " + status + " " + result.target()
+                    + " (" + result.millis() + " ms) " + detail);
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Outcome of one target.
+     *
+     * @param target  Target name
+     * @param applied Number of scripts applied
+     * @param millis  Time spent after getting a host slot
+     * @param error   Failure, or null on success
+     */
+    private record TargetResult(String target, int applied, long millis, Exception error) {
+    }
+}
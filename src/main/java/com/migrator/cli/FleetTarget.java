@@ -0,0 +1,96 @@
+package com.migrator.cli;
+
+import com.migrator.model.DbConfig;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One database of a fleet run, read from a targets file.
+ *
+ * Targets file format:
+ * --------------------
+ * One target per line, as whitespace-separated key=value pairs using
+ * the same keys as the command line. Keys missing on a line fall back
+ * to the command-line value, so shared credentials are given once.
+ * Blank lines and lines starting with "#" are ignored.
+ *
+ *   # name is optional (default: host:port/db.name)
+ *   name=acme    db.type=postgres db.host=pg-01 db.port=5432 db.name=acme
+ *   name=globex  db.type=postgres db.host=pg-02 db.port=5432 db.name=globex
+ *
+ * @param name   Label used in logs and the summary
+ * @param config Connection settings of the target
+ */
+public record FleetTarget(String name, DbConfig config) {
+
+    private static final String[] REQUIRED = {
+            "db.type", "db.host", "db.port", "db.user", "db.pass", "db.name"
+    };
+
+    /**
+     * Reads all targets of the file.
+     *
+     * @param file     Targets file
+     * @param defaults Command-line arguments used for missing keys
+     * @throws IllegalArgumentException listing every invalid line
+     */
+    public static List<FleetTarget> readAll(Path file, Map<String, String> defaults) throws IOException {
+        List<FleetTarget> targets = new ArrayList<>();
+        List<String> problems = new ArrayList<>();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            try {
+                targets.add(parse(line, defaults));
+            } catch (RuntimeException e) {
+                problems.add("line " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+
+        if (!problems.isEmpty()) {
+            throw new IllegalArgumentException(
+                    problems.size() + " invalid target(s) in " + file + ":\n  "
+                            + String.join("\n  ", problems));
+        }
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("No targets in " + file);
+        }
+        return targets;
+    }
+
+    private static FleetTarget parse(String line, Map<String, String> defaults) {
+        Map<String, String> values = new HashMap<>(defaults);
+
+        for (String pair : line.split("\\s+")) {
+            String[] parts = pair.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("expected key=value, got '" + pair + "'");
+            }
+            values.put(parts[0], parts[1]);
+        }
+
+        for (String key : REQUIRED) {
+            if (!values.containsKey(key)) {
+                throw new IllegalArgumentException("missing " + key);
+            }
+        }
+
+        DbConfig config = MigrationRunner.buildConfig(values);
+        String name = values.getOrDefault("name",
+                config.host() + ":" + config.port() + "/" + config.database());
+
+        return new FleetTarget(name, config);
+    }
+}
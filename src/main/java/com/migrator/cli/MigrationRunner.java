@@ -2,10 +2,16 @@ package com.migrator.cli;
 
 import com.migrator.core.db.DatabaseConnector;
 import com.migrator.core.db.DbVersionRepository;
+import com.migrator.core.db.impl.MigrationCoordinator;
 import com.migrator.core.db.impl.MigrationLock;
+import com.migrator.core.db.impl.MigrationPlanner;
 import com.migrator.core.db.impl.MigrationService;
+import com.migrator.core.db.impl.MigrationSession;
+import com.migrator.core.db.impl.MigrationValidator;
 import com.migrator.core.db.ScriptExecutor;
 import com.migrator.core.db.impl.ScriptLoader;
+import com.migrator.core.db.impl.postgres.PostgresTenantMigrator;
+import com.migrator.core.db.pool.PooledConnector;
 import com.migrator.core.failure.FailureStrategy;
 import com.migrator.factory.DatabaseComponentFactory;
 import com.migrator.factory.DatabaseConnectorFactory;
@@ -13,9 +19,17 @@ import com.migrator.factory.FailureStrategyFactory;
 import com.migrator.factory.MigrationLockFactory;
 import com.migrator.model.DatabaseType;
 import com.migrator.model.DbConfig;
+import com.migrator.model.ExecutorOptions;
+import com.migrator.model.RunReport;
+import com.migrator.util.ChecksumAlgorithm;
+import com.migrator.util.ChecksumOptions;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -37,6 +51,41 @@ import java.util.Map;
  *      --db.pass=postgres \
  *      --db.name=mydb \
  *      --migrations=./migrations
+ *
+ * Optional arguments:
+ *   --mode=migrate|validate|plan  validate compares applied checksums with local files;
+ *                              plan estimates the rows each pending statement touches (see
+ *                              MigrationPlanner). Neither makes changes.
+ *   --loader.mode=lazy|eager   lazy (default) indexes files and reads only pending scripts
+ *   --loader.parallelism=N     threads used to read and hash files (default: CPU count)
+ *   --loader.cache=true        cache checksums of unchanged files in migrations/.migrator-index
+ *   --checksum.algorithm=sha256|crc32c   checksum algorithm (default: sha256)
+ *   --checksum.normalize-eol=true        hash CRLF line endings as LF
+ *   --batch.size=N             send up to N consecutive DML statements per JDBC batch
+ *                              (MSSQL: only GO batches holding a single statement)
+ *   --savepoint.interval=N     statements between savepoints; a transient failure resumes from the
+ *                              last savepoint instead of re-running the script (default: 0 = off)
+ *   --targets=FILE             migrate every database listed in FILE concurrently (see FleetTarget);
+ *                              db.* arguments become defaults for the listed targets. --report and
+ *                              --metrics.file get one file per target (name inserted before the extension)
+ *   --fleet.max-per-host=N     targets migrated at once on the same host (default: 4)
+ *   --lock.timeout-ms=N        maximum wait for a concurrent migration to finish (default: 300000)
+ *   --coordination=wait|follow follow: when another process is migrating, wait for it and exit
+ *                              without migrating if it succeeds (see MigrationCoordinator)
+ *   --parallel=N               run independent scripts (see ScriptDirectives) on N connections
+ *   --tenants=a,b,tenant_%     postgres only: migrate each listed schema (LIKE patterns allowed),
+ *                              each with its own schema_migrations table
+ *   --tenants.parallelism=N    connections used for tenants, i.e. tenants migrated at once (default: 4)
+ *   --pool.statement-cache=N   prepared statements cached per pooled connection (default: 32)
+ *   --pool.timeout-ms=N        maximum wait for a pooled connection (default: 30000)
+ *   --online=true              postgres only: online DDL (lock_timeout on DDL with jittered retries;
+ *                              CONCURRENTLY scripts run outside a transaction)
+ *   --online.lock-timeout-ms=N lock_timeout of each DDL statement (default: 2000)
+ *   --online.lock-retries=N    attempts per statement when the lock is busy (default: 10)
+ *   --report=FILE              write a JSON report of the run: per-script time, rows, retries
+ *                              and slowest statements, plus the wait for the migration lock
+ *   --metrics.file=FILE        write run metrics in OpenMetrics text format for the node-exporter
+ *                              textfile collector (see OpenMetricsFile), on success and on failure
  */
 public class MigrationRunner {
 
@@ -45,62 +94,368 @@ public class MigrationRunner {
         System.out.println("Starting Database Migration Tool...");
 
         Map<String, String> params = parseArgs(args);
-        validateParams(params);
 
-        // Database type
-        DatabaseType dbType = DatabaseType.from(params.get("db.type"));
+        if (params.containsKey("targets")) {
+            runFleet(params);
+            return;
+        }
+
+        validateParams(params);
 
         // Build DbConfig (pure data)
-        DbConfig config = new DbConfig(
-                dbType,
-                params.get("db.host"),
-                Integer.parseInt(params.get("db.port")),
-                params.get("db.name"),
-                params.get("db.user"),
-                params.get("db.pass"),
-                params.get("failure-strategy")
-        );
+        DbConfig config = buildConfig(params);
+        DatabaseType dbType = config.type();
 
-        String migrationDir = params.get("migrations");
+        if (params.containsKey("tenants")) {
+            runTenants(config, params);
+            return;
+        }
 
         // Create DB connection via connector
         DatabaseConnector connector =
                 DatabaseConnectorFactory.create(dbType);
 
-        Connection connection = connector.connect(config);
+        String mode = mode(params);
+
+        if (mode.equals("validate")) {
+            Connection connection = connector.connect(config);
+            System.out.println("Connected to database (" + dbType + ")");
+
+            // Read-only: no lock, nothing is executed, the migration tables are not created or upgraded
+            try (DbVersionRepository repository = DatabaseComponentFactory.createReadOnlyRepository(dbType, connection)) {
+                new MigrationValidator(createLoader(params), repository).validate();
+            }
+
+            System.out.println("Validation completed successfully.");
+            return;
+        }
+
+        if (mode.equals("plan")) {
+            Connection connection = connector.connect(config);
+            System.out.println("Connected to database (" + dbType + ")");
+
+            // Only EXPLAIN and catalog queries: no lock, nothing is executed, the migration tables are not created or upgraded
+            try (DbVersionRepository repository = DatabaseComponentFactory.createReadOnlyRepository(dbType, connection)) {
+                new MigrationPlanner(createLoader(params), repository,
+                        DatabaseComponentFactory.createPlanner(dbType, connection)).plan();
+            }
+
+            System.out.println("Plan completed successfully.");
+            return;
+        }
+
+        // Timings for --report and --metrics.file
+        RunReport report = params.containsKey("report") || params.containsKey("metrics.file")
+                ? new RunReport(dbType.name().toLowerCase(), config.host(), config.database())
+                : null;
+
+        Exception failure = null;
+        try {
+            migrate(connector, config, params, report);
+        }
+        catch (Exception e) {
+            failure = e;
+            throw e;
+        }
+        finally {
+            if (report != null) {
+                writeOutputs(report, params, failure);
+            }
+        }
+
+        System.out.println("Migration completed successfully.");
+    }
+
+    /**
+     * Takes the migration lock, or follows the process holding it, and
+     * applies the pending scripts.
+     */
+    private static void migrate(DatabaseConnector connector, DbConfig config, Map<String, String> params,
+                                RunReport report) throws Exception {
+        DatabaseType dbType = config.type();
+
+        // The lock lives on its own connection, independent of migration transactions
+        long lockTimeout = lockTimeout(params);
+        Connection lockConnection = connector.connect(config);
+        MigrationLock lock = MigrationLockFactory.create(dbType.name(), lockConnection, lockTimeout);
 
-        MigrationLock lock = MigrationLockFactory.create(dbType.name(), connection);
-        System.out.println("Acquiring migration lock...");
-        lock.acquire();
+        long lockStart = System.nanoTime();
+        boolean leader = true;
         try {
+            if (isFollowMode(params)) {
+                // Followers hold nothing but the lock connection while they wait
+                try {
+                    leader = new MigrationCoordinator(lock, lockTimeout).awaitLeadership();
+                } catch (Exception e) {
+                    lockConnection.close();
+                    throw e;
+                }
+            } else {
+                System.out.println("Acquiring migration lock...");
+                lock.acquire();
+            }
+        } finally {
+            if (report != null) {
+                report.recordLockWait(System.nanoTime() - lockStart);
+            }
+        }
+
+        if (!leader) {
+            // The process holding the lock applied the migrations
+            lockConnection.close();
+            return;
+        }
+
+        try {
+            Connection connection = connector.connect(config);
             System.out.println("Connected to database (" + dbType + ")");
 
             // Core components
-            ScriptLoader loader = new ScriptLoader(migrationDir);
+            ScriptLoader loader = createLoader(params);
+
+            try (DbVersionRepository repository = DatabaseComponentFactory.createRepository(dbType, connection)) {
 
-            DbVersionRepository repository = DatabaseComponentFactory.createRepository(dbType, connection);
+                ScriptExecutor executor = DatabaseComponentFactory.createExecutor(dbType, connection,
+                        executorOptions(params));
 
-            ScriptExecutor executor = DatabaseComponentFactory.createExecutor(dbType, connection);
+                // Run migration
+                MigrationService service = new MigrationService(loader, repository, executor);
+                service.setReport(report);
 
-            // Run migration
-            MigrationService service = new MigrationService(loader, repository, executor);
+                FailureStrategy failureStrategy = FailureStrategyFactory.from(config.failureStrategy());
 
-            FailureStrategy failureStrategy = FailureStrategyFactory.from(config.failureStrategy());
+                int workers = Integer.parseInt(params.getOrDefault("parallel", "1"));
+                if (workers > 1) {
+                    migrateParallel(service, connector, config, connection, failureStrategy, workers, params);
+                } else {
+                    service.migrate(connection, failureStrategy);
+                }
+            }
 
-            service.migrate(connection, failureStrategy);
+            signalCompletion(lock);
         }
         finally {
             System.out.println("Releasing migration lock...");
-            lock.release();
+            try {
+                lock.release();
+            } finally {
+                lockConnection.close();
+            }
         }
+    }
 
-        System.out.println("Migration completed successfully.");
+    private static void writeOutputs(RunReport report, Map<String, String> params, Exception failure) {
+        writeOutputs(report, outputPath(params, "report"), outputPath(params, "metrics.file"), failure);
+    }
+
+    /**
+     * Writes the run report and the metrics file, whichever was
+     * requested. A file that cannot be written does not fail the run.
+     *
+     * @param reportFile  --report file, or null
+     * @param metricsFile --metrics.file file, or null
+     */
+    static void writeOutputs(RunReport report, Path reportFile, Path metricsFile, Exception failure) {
+        if (reportFile != null) {
+            Path file = reportFile;
+            try {
+                Files.writeString(file, report.toJson(failure));
+                System.out.println("Run report written to " + file);
+            } catch (Exception e) {
+                System.out.println("WARNING: Could not write run report " + file + ": " + e.getMessage());
+            }
+        }
+
+        if (metricsFile != null) {
+            Path file = metricsFile;
+            try {
+                OpenMetricsFile.write(file, report, failure == null);
+                System.out.println("Metrics written to " + file);
+            } catch (Exception e) {
+                System.out.println("WARNING: Could not write metrics file " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static Path outputPath(Map<String, String> params, String key) {
+        return params.containsKey(key) ? Path.of(params.get(key)) : null;
+    }
+
+    /**
+     * Tells followers that the migration succeeded. Failing to do so
+     * only makes them re-check the database themselves.
+     */
+    private static void signalCompletion(MigrationLock lock) {
+        try {
+            lock.signalCompletion();
+        } catch (Exception e) {
+            System.out.println("WARNING: Could not signal migration completion: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs independent scripts side by side on extra pooled connections,
+     * which are closed when the run ends.
+     */
+    private static void migrateParallel(MigrationService service, DatabaseConnector connector, DbConfig config,
+                                        Connection connection, FailureStrategy failureStrategy, int workers,
+                                        Map<String, String> params) throws Exception {
+        List<MigrationSession> sessions = new ArrayList<>();
+        PooledConnector pool = createPool(connector, workers - 1, params);
+        try {
+            for (int i = 1; i < workers; i++) {
+                Connection extra = pool.connect(config);
+                ScriptExecutor executor = DatabaseComponentFactory.createExecutor(config.type(), extra,
+                        executorOptions(params));
+                sessions.add(new MigrationSession(extra, executor,
+                        DatabaseComponentFactory.createRepository(config.type(), extra)));
+            }
+
+            service.migrateParallel(connection, failureStrategy, sessions);
+
+        } finally {
+            for (MigrationSession session : sessions) {
+                session.repository().close();
+                session.connection().close();
+            }
+            pool.close();
+        }
+    }
+
+    /**
+     * Batching, savepoint and online DDL arguments, shared by every
+     * executor of the run.
+     */
+    private static ExecutorOptions executorOptions(Map<String, String> params) {
+        return new ExecutorOptions(
+                Integer.parseInt(params.getOrDefault("batch.size", "1")),
+                Integer.parseInt(params.getOrDefault("savepoint.interval", "0")),
+                isOnlineDdl(params),
+                onlineLockTimeout(params),
+                onlineLockRetries(params)
+        );
+    }
+
+    private static boolean isOnlineDdl(Map<String, String> params) {
+        return Boolean.parseBoolean(params.getOrDefault("online", "false"));
+    }
+
+    private static long onlineLockTimeout(Map<String, String> params) {
+        return Long.parseLong(params.getOrDefault("online.lock-timeout-ms", "2000"));
+    }
+
+    private static int onlineLockRetries(Map<String, String> params) {
+        return Integer.parseInt(params.getOrDefault("online.lock-retries", "10"));
+    }
+
+    private static long lockTimeout(Map<String, String> params) {
+        return Long.parseLong(params.getOrDefault("lock.timeout-ms", "300000"));
+    }
+
+    private static PooledConnector createPool(DatabaseConnector connector, int size, Map<String, String> params) {
+        return new PooledConnector(
+                connector,
+                size,
+                Integer.parseInt(params.getOrDefault("pool.statement-cache", "32")),
+                Long.parseLong(params.getOrDefault("pool.timeout-ms", "30000"))
+        );
+    }
+
+    /**
+     * Migrates every database of the --targets file in one process.
+     */
+    private static void runFleet(Map<String, String> params) throws Exception {
+        if (!params.containsKey("migrations")) {
+            throw new RuntimeException("Missing required argument: --migrations");
+        }
+
+        // Each target runs on one connection; these modes have no fleet equivalent
+        if (!mode(params).equals("migrate") || isFollowMode(params)
+                || params.containsKey("parallel") || params.containsKey("tenants")) {
+            throw new IllegalArgumentException(
+                    "--targets only supports --mode=migrate, without --parallel, --tenants or --coordination=follow");
+        }
+
+        List<FleetTarget> targets = FleetTarget.readAll(Path.of(params.get("targets")), params);
+
+        FleetRunner fleet = new FleetRunner(
+                createLoader(params),
+                Integer.parseInt(params.getOrDefault("fleet.max-per-host", "4")),
+                executorOptions(params),
+                lockTimeout(params)
+        );
+        fleet.setOutputs(outputPath(params, "report"), outputPath(params, "metrics.file"));
+        fleet.run(targets);
+
+        System.out.println("Fleet migration completed successfully.");
+    }
+
+    /**
+     * Migrates the tenant schemas of one Postgres database over a few
+     * reused connections.
+     */
+    private static void runTenants(DbConfig config, Map<String, String> params) throws Exception {
+        if (config.type() != DatabaseType.POSTGRES) {
+            throw new IllegalArgumentException("--tenants is only supported for postgres");
+        }
+
+        // Tenants already run in parallel, each on one connection
+        if (!mode(params).equals("migrate") || isFollowMode(params) || params.containsKey("parallel")) {
+            throw new IllegalArgumentException(
+                    "--tenants only supports --mode=migrate, without --parallel or --coordination=follow");
+        }
+
+        int parallelism = Integer.parseInt(params.getOrDefault("tenants.parallelism", "4"));
+
+        // One report for the database; script entries name their tenant schema
+        RunReport report = params.containsKey("report") || params.containsKey("metrics.file")
+                ? new RunReport(config.type().name().toLowerCase(), config.host(), config.database())
+                : null;
+
+        // Workers plus the coordinator connection holding the lock
+        Exception failure = null;
+        try (PooledConnector pool = createPool(DatabaseConnectorFactory.create(config.type()), parallelism + 1, params)) {
+            PostgresTenantMigrator migrator = new PostgresTenantMigrator(
+                    pool,
+                    config,
+                    createLoader(params),
+                    FailureStrategyFactory.from(config.failureStrategy()),
+                    parallelism,
+                    executorOptions(params),
+                    lockTimeout(params)
+            );
+            migrator.setReport(report);
+            migrator.migrate(List.of(params.get("tenants").split(",")));
+        }
+        catch (Exception e) {
+            failure = e;
+            throw e;
+        }
+        finally {
+            if (report != null) {
+                writeOutputs(report, params, failure);
+            }
+        }
+
+        System.out.println("Tenant migration completed successfully.");
     }
 
     // ---------------------------
     // Argument parsing helpers
     // ---------------------------
 
+    static DbConfig buildConfig(Map<String, String> params) {
+        return new DbConfig(
+                DatabaseType.from(params.get("db.type")),
+                params.get("db.host"),
+                Integer.parseInt(params.get("db.port")),
+                params.get("db.name"),
+                params.get("db.user"),
+                params.get("db.pass"),
+                params.get("failure-strategy")
+        );
+    }
+
     private static Map<String, String> parseArgs(String[] args) {
         Map<String, String> map = new HashMap<>();
 
@@ -116,6 +471,61 @@ public class MigrationRunner {
         return map;
     }
 
+    private static ScriptLoader createLoader(Map<String, String> params) {
+        return new ScriptLoader(
+                params.get("migrations"),
+                isLazyLoading(params),
+                Integer.parseInt(params.getOrDefault(
+                        "loader.parallelism",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                Boolean.parseBoolean(params.getOrDefault("loader.cache", "false")),
+                new ChecksumOptions(
+                        ChecksumAlgorithm.from(params.getOrDefault("checksum.algorithm", "sha256")),
+                        Boolean.parseBoolean(params.getOrDefault("checksum.normalize-eol", "false")))
+        );
+    }
+
+    /**
+     * --coordination=follow waits for a running migration and skips the
+     * run when it completes; wait (default) queues behind it.
+     */
+    private static boolean isFollowMode(Map<String, String> params) {
+        String coordination = params.getOrDefault("coordination", "wait");
+        return switch (coordination.toLowerCase()) {
+            case "wait" -> false;
+            case "follow" -> true;
+            default -> throw new IllegalArgumentException(
+                    "Unknown coordination: " + coordination +
+                            ". Allowed values: wait, follow"
+            );
+        };
+    }
+
+    private static String mode(Map<String, String> params) {
+        String mode = params.getOrDefault("mode", "migrate");
+
+        return switch (mode.toLowerCase()) {
+            case "migrate", "validate", "plan" -> mode.toLowerCase();
+            default -> throw new IllegalArgumentException(
+                    "Unknown mode: " + mode +
+                            ". Allowed values: migrate, validate, plan"
+            );
+        };
+    }
+
+    private static boolean isLazyLoading(Map<String, String> params) {
+        String mode = params.getOrDefault("loader.mode", "lazy");
+
+        return switch (mode.toLowerCase()) {
+            case "lazy" -> true;
+            case "eager" -> false;
+            default -> throw new IllegalArgumentException(
+                    "Unknown loader mode: " + mode +
+                            ". Allowed values: lazy, eager"
+            );
+        };
+    }
+
     private static void validateParams(Map<String, String> params) {
 
         String[] required = {
@@ -0,0 +1,224 @@
+package com.migrator.cli;
+
+import com.migrator.model.MigrationResult;
+import com.migrator.model.RunReport;
+import com.migrator.model.ScriptMetrics;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Writes the metrics of a run as an OpenMetrics text file, for the
+ * node-exporter textfile collector (--metrics.file=FILE).
+ *
+ * Metrics, labelled with db_type, db_host and db_name:
+ * - migrator_script_duration_seconds    histogram of applied scripts
+ * - migrator_run_duration_seconds       whole run, lock wait included
+ * - migrator_run_success                1 when the run succeeded, else 0
+ * - migrator_lock_wait_seconds          wait for the migration lock
+ * - migrator_pending_scripts            pending when the run started
+ * - migrator_applied_scripts / migrator_failed_scripts
+ * - migrator_bulk_load_bytes            data files loaded by applied bulk loads
+ * - migrator_retries                    retries of the run, by sqlstate_class
+ * - migrator_last_run_timestamp_seconds
+ * - migrator_last_success_timestamp_seconds
+ *
+ * Every value describes the last run, so all metrics are gauges except
+ * the histogram; this also keeps the file valid for the Prometheus text
+ * parser of node-exporter.
+ *
+ * The file is written to a temporary file in the same directory and
+ * moved over the old one, so the collector never reads a partial file.
+ * The collector only reads *.prom files; the temporary file is not one.
+ *
+ * Last-success timestamps of other databases found in the old file
+ * are kept, as is the previous one of this database when the run
+ * failed, so several databases can share one file.
+ */
+public final class OpenMetricsFile {
+
+    /** Upper bounds of the script duration buckets, in seconds */
+    private static final double[] BUCKETS = {0.1, 0.5, 1, 5, 10, 30, 60, 300, 900, 3600};
+
+    private static final String LAST_SUCCESS = "migrator_last_success_timestamp_seconds";
+
+    private OpenMetricsFile() {
+    }
+
+    /**
+     * @param file    Target file, e.g. /var/lib/node_exporter/textfile/migrator.prom
+     * @param report  Figures of the run
+     * @param success True when the run succeeded
+     * @throws IOException when the file cannot be written
+     */
+    public static void write(Path file, RunReport report, boolean success) throws IOException {
+        String labels = "db_type=\"" + escape(report.getDatabaseType())
+                + "\",db_host=\"" + escape(report.getHost())
+                + "\",db_name=\"" + escape(report.getDatabase()) + "\"";
+        long now = System.currentTimeMillis();
+
+        Map<String, String> lastSuccess = readLastSuccess(file);
+        if (success) {
+            lastSuccess.put(labels, seconds(now));
+        }
+
+        StringBuilder text = new StringBuilder(2048);
+        histogram(text, report.getResults(), labels);
+
+        gauge(text, "migrator_run_duration_seconds", "Duration of the last run, lock wait included.",
+                labels, seconds(report.getElapsedMillis()));
+        gauge(text, "migrator_run_success", "1 when the last run succeeded, 0 when it failed.",
+                labels, success ? "1" : "0");
+        gauge(text, "migrator_lock_wait_seconds", "Wait for the migration lock in the last run.",
+                labels, seconds(report.getLockWaitMillis()));
+        gauge(text, "migrator_pending_scripts", "Scripts pending when the last run started.",
+                labels, String.valueOf(report.getPending()));
+
+        long applied = report.getResults().stream().filter(MigrationResult::isSuccess).count();
+        gauge(text, "migrator_applied_scripts", "Scripts applied by the last run.",
+                labels, String.valueOf(applied));
+        gauge(text, "migrator_failed_scripts", "Scripts that failed in the last run.",
+                labels, String.valueOf(report.getResults().size() - applied));
+
+        long bytes = applied(report.getResults()).mapToLong(ScriptMetrics::getBytesLoaded).sum();
+        gauge(text, "migrator_bulk_load_bytes", "Data file bytes loaded by bulk-load migrations in the last run.",
+                labels, String.valueOf(bytes));
+
+        retries(text, report, labels);
+
+        gauge(text, "migrator_last_run_timestamp_seconds", "End of the last run.",
+                labels, seconds(now));
+
+        header(text, LAST_SUCCESS, "gauge", "End of the last successful run of each database.");
+        lastSuccess.forEach((series, value) ->
+                text.append(LAST_SUCCESS).append('{').append(series).append("} ").append(value).append('\n'));
+
+        text.append("# EOF\n");
+        writeAtomically(file, text.toString());
+    }
+
+    private static void histogram(StringBuilder text, List<MigrationResult> results, String labels) {
+        String name = "migrator_script_duration_seconds";
+        header(text, name, "histogram", "Execution time of the scripts applied by the last run.");
+
+        List<Long> millis = applied(results).map(ScriptMetrics::getExecutionMillis).toList();
+
+        for (double bound : BUCKETS) {
+            long count = millis.stream().filter(ms -> ms <= bound * 1000).count();
+            text.append(name).append("_bucket{").append(labels).append(",le=\"").append(bound).append("\"} ")
+                    .append(count).append('\n');
+        }
+        text.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(millis.size()).append('\n');
+        text.append(name).append("_count{").append(labels).append("} ").append(millis.size()).append('\n');
+        text.append(name).append("_sum{").append(labels).append("} ")
+                .append(seconds(millis.stream().mapToLong(Long::longValue).sum())).append('\n');
+    }
+
+    /**
+     * Retries of applied and failed scripts, by SQLState class.
+     */
+    private static void retries(StringBuilder text, RunReport report, String labels) {
+        Map<String, Integer> byState = new TreeMap<>();
+        for (MigrationResult result : report.getResults()) {
+            if (result.getMetrics() != null) {
+                result.getMetrics().getRetriesByState().forEach((state, count) -> byState.merge(state, count, Integer::sum));
+            }
+        }
+
+        String name = "migrator_retries";
+        header(text, name, "gauge", "Retries after transient failures in the last run, by SQLState class.");
+        byState.forEach((state, count) ->
+                text.append(name).append('{').append(labels).append(",sqlstate_class=\"").append(escape(state))
+                        .append("\"} ").append(count).append('\n'));
+    }
+
+    /**
+     * @return Metrics of the applied scripts
+     */
+    private static Stream<ScriptMetrics> applied(List<MigrationResult> results) {
+        return results.stream()
+                .filter(MigrationResult::isSuccess)
+                .map(MigrationResult::getMetrics)
+                .filter(metrics -> metrics != null);
+    }
+
+    private static void gauge(StringBuilder text, String name, String help, String labels, String value) {
+        header(text, name, "gauge", help);
+        text.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static void header(StringBuilder text, String name, String type, String help) {
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    }
+
+    /**
+     * Reads the last-success series of the previous file.
+     *
+     * @return Value by label set, empty when there is no readable file
+     */
+    private static Map<String, String> readLastSuccess(Path file) {
+        Map<String, String> series = new LinkedHashMap<>();
+        if (!Files.isRegularFile(file)) {
+            return series;
+        }
+        try {
+            for (String line : Files.readAllLines(file)) {
+                if (!line.startsWith(LAST_SUCCESS + "{")) {
+                    continue;
+                }
+                int end = line.lastIndexOf("} ");
+                if (end > LAST_SUCCESS.length()) {
+                    series.put(line.substring(LAST_SUCCESS.length() + 1, end), line.substring(end + 2).strip());
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("WARNING: Could not read previous metrics file " + file + ": " + e.getMessage());
+        }
+        return series;
+    }
+
+    private static void writeAtomically(Path file, String text) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, "." + file.getFileName(), ".tmp");
+        try {
+            Files.writeString(temp, text);
+            try {
+                // Temporary files are created owner-only; the collector may run as another user
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-r--r--"));
+            } catch (UnsupportedOperationException ignored) {
+            }
+
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return Milliseconds as seconds with three decimals, e.g. "1.250"
+     */
+    private static String seconds(long millis) {
+        return millis / 1000 + "." + String.format("%03d", millis % 1000);
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
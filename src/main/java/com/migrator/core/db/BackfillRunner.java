@@ -0,0 +1,288 @@
+package com.migrator.core.db;
+
+import com.migrator.core.sql.ScriptDirectives;
+import com.migrator.core.sql.SqlDialect;
+import com.migrator.core.sql.SqlStatement;
+import com.migrator.core.sql.SqlTokenizer;
+import com.migrator.model.BackfillProgress;
+import com.migrator.model.MigrationScript;
+import com.migrator.model.ScriptMetrics;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs a backfill migration as many small committed chunks.
+ *
+ * A backfill is a SQL script whose header declares an integer key
+ * (see {@link ScriptDirectives}):
+ *
+ *   -- migrator:backfill-key=orders.id
+ *   -- migrator:chunk-size=5000
+ *   UPDATE orders SET total_cents = total * 100
+ *   WHERE id >= :from AND id < :to;
+ *
+ * Steps:
+ * 1. On the first run, read MIN/MAX of the key and store the range in
+ *    schema_migration_backfill
+ * 2. Run the statements once per chunk [from, to), each chunk in its
+ *    own transaction together with the new progress row
+ * 3. Once the whole range is done, record the version in
+ *    schema_migrations
+ *
+ * A crash or failure loses at most the running chunk; the next run
+ * resumes from the last committed one. Statements must therefore be
+ * safe to run once per chunk, with the chunk bounds as their only
+ * filter on the key.
+ */
+class BackfillRunner {
+
+    /** :from / :to parameters, not matching "::" casts */
+    private static final Pattern PARAMETER = Pattern.compile("(?<!:):(from|to)\\b");
+
+    /** Key column syntax: [schema.]table.column */
+    private static final Pattern KEY = Pattern.compile("[A-Za-z_][\\w$]*(\\.[A-Za-z_][\\w$]*)+");
+
+    /** Minimum interval between progress lines */
+    private static final long REPORT_INTERVAL_NANOS = 10_000_000_000L;
+
+    private final Connection connection;
+    private final DbVersionRepository repository;
+    private final RetryPolicy retryPolicy;
+    private final SqlDialect dialect;
+
+    BackfillRunner(Connection connection, DbVersionRepository repository, RetryPolicy retryPolicy,
+                   SqlDialect dialect) {
+        this.connection = connection;
+        this.repository = repository;
+        this.retryPolicy = retryPolicy;
+        this.dialect = dialect;
+    }
+
+    /**
+     * Runs the remaining chunks and records the version when done.
+     *
+     * @param maxAttempts Attempts per chunk on transient failures
+     * @param metrics     Receives rows of committed chunks and chunk retries
+     */
+    void run(MigrationScript script, ScriptDirectives directives, int maxAttempts, ScriptMetrics metrics)
+            throws Exception {
+        List<ChunkStatement> statements = prepare(script);
+        try {
+            runChunks(script, directives, statements, maxAttempts, metrics);
+        } finally {
+            statements.forEach(ChunkStatement::close);
+        }
+    }
+
+    private void runChunks(MigrationScript script, ScriptDirectives directives, List<ChunkStatement> statements,
+                           int maxAttempts, ScriptMetrics metrics) throws Exception {
+        long chunkSize = directives.chunkSize();
+
+        BackfillProgress progress = repository.findBackfill(script.getVersion());
+        if (progress == null) {
+            progress = readRange(script.getVersion(), directives.backfillKey());
+            repository.saveBackfill(progress);
+            System.out.println("Backfill " + script.getVersion() + ": keys " + progress.rangeStart()
+                    + ".." + progress.rangeEnd() + " in chunks of " + chunkSize);
+        } else {
+            System.out.println("Backfill " + script.getVersion() + ": resuming at key " + progress.nextKey()
+                    + " of " + progress.rangeEnd() + " (" + progress.percent() + "%)");
+        }
+
+        long rows = 0;
+        long lastReport = System.nanoTime();
+
+        while (!progress.isComplete()) {
+            long from = progress.nextKey();
+            long to = chunkEnd(from, chunkSize, progress.rangeEnd());
+
+            long chunkRows = runChunk(statements, from, progress.advance(to), maxAttempts, metrics);
+            metrics.addRows(chunkRows);
+            rows += chunkRows;
+            progress = progress.advance(to);
+
+            if (System.nanoTime() - lastReport >= REPORT_INTERVAL_NANOS || progress.isComplete()) {
+                System.out.println("Backfill " + script.getVersion() + ": " + progress.percent() + "% (key "
+                        + Math.min(progress.nextKey(), progress.rangeEnd()) + " of " + progress.rangeEnd()
+                        + ", " + rows + " rows this run)");
+                lastReport = System.nanoTime();
+            }
+        }
+
+        metrics.finish();
+        repository.save(script, metrics);
+    }
+
+    /**
+     * Exclusive end of the chunk starting at from. Computed without
+     * overflow, for key ranges near Long.MIN_VALUE / Long.MAX_VALUE or
+     * wider than Long.MAX_VALUE.
+     *
+     * @param rangeEnd Last key of the range, below Long.MAX_VALUE (see readRange)
+     */
+    static long chunkEnd(long from, long chunkSize, long rangeEnd) {
+        long end = rangeEnd + 1;
+        // end - from is the number of keys left; it may exceed Long.MAX_VALUE, so compare it unsigned
+        return Long.compareUnsigned(end - from, chunkSize) <= 0 ? end : from + chunkSize;
+    }
+
+    /**
+     * Runs one chunk and stores the progress in the same transaction.
+     * Transient failures roll the chunk back and run it again.
+     *
+     * @param from First key of the chunk
+     * @param next Progress after this chunk; the chunk ends before next.nextKey()
+     * @return Rows affected, as reported by the driver
+     */
+    private long runChunk(List<ChunkStatement> statements, long from, BackfillProgress next, int maxAttempts,
+                          ScriptMetrics metrics) throws SQLException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                connection.setAutoCommit(false);
+                long rows = 0;
+                for (ChunkStatement statement : statements) {
+                    rows += statement.execute(connection, from, next.nextKey());
+                }
+                repository.saveBackfill(next);
+                connection.commit();
+                return rows;
+
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    connection.rollback();
+                } catch (SQLException ignored) {}
+
+                SQLException cause = retryPolicy.transientCause(e);
+                if (cause == null || attempt >= maxAttempts) {
+                    throw new SQLException("Backfill chunk [" + from + ", " + next.nextKey() + ") of version "
+                            + next.version() + " failed; earlier chunks stay committed and the next run resumes here",
+                            e instanceof SQLException sql ? sql.getSQLState() : null, e);
+                }
+
+                metrics.recordStatementRetry(cause.getSQLState());
+                long backoff = retryPolicy.backoffMillis(attempt);
+                System.out.println("Transient failure in backfill chunk starting at key " + from + " (SQLState "
+                        + cause.getSQLState() + "), retrying in " + backoff + " ms");
+                Thread.sleep(backoff);
+
+            } finally {
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException ignored) {}
+            }
+        }
+    }
+
+    /**
+     * Reads the key range once, with MIN/MAX over the key column.
+     */
+    private BackfillProgress readRange(String version, String key) throws SQLException {
+        if (!KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid backfill-key in version " + version + ": " + key
+                    + " (expected table.column)");
+        }
+        int dot = key.lastIndexOf('.');
+        String table = key.substring(0, dot);
+        String column = key.substring(dot + 1);
+
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(" + column + "), MAX(" + column + ") FROM " + table)) {
+            rs.next();
+            long min = rs.getLong(1);
+            if (rs.wasNull()) {
+                // Empty table: nothing to do
+                return BackfillProgress.start(version, 0, -1);
+            }
+            long max = rs.getLong(2);
+            if (max == Long.MAX_VALUE) {
+                // The exclusive :to of the last chunk would be Long.MAX_VALUE + 1
+                throw new IllegalArgumentException("Backfill key " + key + " of version " + version
+                        + " reaches " + Long.MAX_VALUE + ", which a chunk bound (:to, exclusive) cannot cover");
+            }
+            return BackfillProgress.start(version, min, max);
+        }
+    }
+
+    /**
+     * Splits the script and turns :from / :to into JDBC parameters.
+     */
+    private List<ChunkStatement> prepare(MigrationScript script) throws IOException {
+        List<ChunkStatement> statements = new ArrayList<>();
+
+        try (SqlTokenizer tokenizer = new SqlTokenizer(script.openReader(), dialect)) {
+            while (tokenizer.hasNext()) {
+                SqlStatement statement = tokenizer.next();
+                List<Boolean> isFrom = new ArrayList<>();
+                Matcher matcher = PARAMETER.matcher(statement.sql());
+                StringBuilder sql = new StringBuilder();
+                while (matcher.find()) {
+                    isFrom.add(matcher.group(1).equals("from"));
+                    matcher.appendReplacement(sql, "?");
+                }
+                matcher.appendTail(sql);
+
+                if (isFrom.isEmpty()) {
+                    throw new IllegalArgumentException("Backfill version " + script.getVersion()
+                            + ": statement " + (statement.index() + 1) + " (line " + statement.line()
+                            + ") does not use :from / :to and would run once per chunk");
+                }
+                statements.add(new ChunkStatement(sql.toString(), isFrom));
+            }
+        }
+
+        if (statements.isEmpty()) {
+            throw new IllegalArgumentException("Backfill version " + script.getVersion() + " has no statements");
+        }
+        return statements;
+    }
+
+    /**
+     * Statement of a backfill with its parameter order, prepared on
+     * first use and reused for every chunk.
+     */
+    private static final class ChunkStatement implements AutoCloseable {
+
+        /** SQL with "?" in place of :from / :to */
+        private final String sql;
+
+        /** For each parameter, true for :from and false for :to */
+        private final List<Boolean> isFrom;
+
+        private PreparedStatement prepared;
+
+        ChunkStatement(String sql, List<Boolean> isFrom) {
+            this.sql = sql;
+            this.isFrom = isFrom;
+        }
+
+        long execute(Connection connection, long from, long to) throws SQLException {
+            if (prepared == null) {
+                prepared = connection.prepareStatement(sql);
+            }
+            for (int i = 0; i < isFrom.size(); i++) {
+                prepared.setLong(i + 1, isFrom.get(i) ? from : to);
+            }
+            prepared.execute();
+            return Math.max(0, prepared.getUpdateCount());
+        }
+
+        @Override
+        public void close() {
+            if (prepared != null) {
+                try {
+                    prepared.close();
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+    }
+}
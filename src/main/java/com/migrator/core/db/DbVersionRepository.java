@@ -1,8 +1,11 @@
 package com.migrator.core.db;
 
+import com.migrator.model.AppliedVersionIndex;
+import com.migrator.model.BackfillProgress;
 import com.migrator.model.MigrationScript;
+import com.migrator.model.ScriptMetrics;
 
-import java.util.Set;
+import java.util.function.BiConsumer;
 
 /**
  * Handles interaction with the "schema_migrations" table.
@@ -20,13 +23,62 @@ import java.util.Set;
  *       version VARCHAR(50) NOT NULL,
  *       description VARCHAR(255),
  *       applied_at TIMESTAMP NOT NULL DEFAULT NOW(),
- *       checksum VARCHAR(255)
+ *       checksum VARCHAR(255),
+ *       execution_ms BIGINT,
+ *       rows_affected BIGINT
  *   );
  *
  * This repository does NOT execute SQL migrations.
  * It only tracks metadata about which scripts were applied.
+ *
+ * save() runs on the same connection as the script executor and does
+ * not commit: the history row is written inside the migration
+ * transaction, so a failed or rolled-back script is never recorded.
+ * Implementations prepare the INSERT once and reuse it for the run.
+ *
+ * Applied versions are read with one ordered query using a large
+ * fetch size, into a compact {@link AppliedVersionIndex}.
+ *
+ * Backfill migrations also keep their progress in the companion
+ * table schema_migration_backfill.
+ *
+ * Validate and plan runs open the repository read-only: the tables
+ * are never created or upgraded, missing tables read as an empty
+ * history, and save() is rejected.
  */
-public interface DbVersionRepository {
-    Set<String> getAppliedVersions();
-    void save(MigrationScript script);
+public interface DbVersionRepository extends AutoCloseable {
+    AppliedVersionIndex getAppliedVersions();
+
+    /**
+     * Streams (version, checksum) of every applied migration in one query.
+     * Used by validation; checksum is null for rows written without one.
+     */
+    void forEachAppliedChecksum(BiConsumer<String, String> action);
+
+    /**
+     * Records the script with its execution time and row count.
+     *
+     * @param metrics Timings of the run, or null to leave both columns empty
+     */
+    void save(MigrationScript script, ScriptMetrics metrics);
+
+    default void save(MigrationScript script) {
+        save(script, null);
+    }
+
+    /**
+     * @return Committed progress of a backfill migration, or null when
+     *         it never started
+     */
+    BackfillProgress findBackfill(String version);
+
+    /**
+     * Inserts or updates the progress row of a backfill. Like save(),
+     * runs on the caller's transaction and does not commit.
+     */
+    void saveBackfill(BackfillProgress progress);
+
+    /** Releases statements cached by this repository. */
+    @Override
+    void close();
 }
@@ -0,0 +1,124 @@
+package com.migrator.core.db;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which migration failures are worth another attempt, and how
+ * long to wait before it.
+ *
+ * An error is transient when any SQLException in its cause chain (or
+ * the getNextException chain) is:
+ * - a deadlock or serialization failure (SQLState 40001, 40P01),
+ * - a lock timeout (55P03),
+ * - a connection failure (class 08) or a server restarting/overloaded
+ *   (53300, 57P01-57P03),
+ * - one of the database's transient vendor codes, or
+ * - a SQLTransactionRollbackException, SQLTransientConnectionException
+ *   or SQLRecoverableException.
+ * Anything else (syntax errors, constraint violations, missing objects,
+ * I/O errors reading the script) is permanent and fails at once.
+ *
+ * Backoff doubles from the initial delay up to the maximum, and each
+ * wait is randomized between half and all of it so that processes
+ * failing together do not retry in lockstep.
+ */
+public final class RetryPolicy {
+
+    private static final Set<String> TRANSIENT_STATES = Set.of(
+            "40001", // serialization_failure
+            "40P01", // deadlock_detected
+            "55P03", // lock_not_available
+            "53300", // too_many_connections
+            "57P01", // admin_shutdown
+            "57P02", // crash_shutdown
+            "57P03"  // cannot_connect_now
+    );
+
+    /** Bounds the walk through cause and next-exception chains */
+    private static final int MAX_CHAIN_DEPTH = 32;
+
+    /** SQLState classes only */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(Set.of(), 200, 5_000);
+
+    public static final RetryPolicy POSTGRES = DEFAULT;
+
+    public static final RetryPolicy MSSQL = new RetryPolicy(Set.of(
+            1205,                       // deadlock victim
+            1222,                       // lock request timeout
+            3960,                       // snapshot isolation update conflict
+            41301, 41302, 41305, 41325, // in-memory OLTP conflicts
+            40197, 40501, 40613,        // Azure SQL: service busy / database unavailable
+            49918, 49919, 49920,        // Azure SQL: too many requests
+            10928, 10929,               // Azure SQL: resource limits
+            10053, 10054                // connection aborted / reset
+    ), 200, 5_000);
+
+    public static final RetryPolicy ORACLE = new RetryPolicy(Set.of(
+            60,    // ORA-00060 deadlock
+            54,    // ORA-00054 resource busy (NOWAIT)
+            30006, // ORA-30006 resource busy (WAIT timeout)
+            4021,  // ORA-04021 timeout waiting to lock object
+            8177,  // ORA-08177 cannot serialize access
+            3113,  // ORA-03113 end-of-file on communication channel
+            3114,  // ORA-03114 not connected
+            3135   // ORA-03135 connection lost contact
+    ), 200, 5_000);
+
+    private final Set<Integer> transientVendorCodes;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private RetryPolicy(Set<Integer> transientVendorCodes, long initialBackoffMillis, long maxBackoffMillis) {
+        this.transientVendorCodes = transientVendorCodes;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * @return The SQLException that makes the error transient, or null
+     *         when the error is permanent
+     */
+    public SQLException transientCause(Throwable error) {
+        int depth = 0;
+        for (Throwable t = error; t != null && depth < MAX_CHAIN_DEPTH; t = t.getCause(), depth++) {
+            if (!(t instanceof SQLException sql)) {
+                continue;
+            }
+            for (SQLException e = sql; e != null && depth < MAX_CHAIN_DEPTH; e = e.getNextException(), depth++) {
+                if (isTransient(e)) {
+                    return e;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean isTransient(SQLException e) {
+        if (e instanceof SQLTransactionRollbackException
+                || e instanceof SQLTransientConnectionException
+                || e instanceof SQLRecoverableException) {
+            return true;
+        }
+
+        String state = e.getSQLState();
+        if (state != null && (TRANSIENT_STATES.contains(state) || state.startsWith("08"))) {
+            return true;
+        }
+        return transientVendorCodes.contains(e.getErrorCode());
+    }
+
+    /**
+     * @param attempt Number of the attempt that just failed, from 1
+     * @return Jittered wait before the next attempt
+     */
+    public long backoffMillis(int attempt) {
+        long delay = initialBackoffMillis << Math.min(attempt - 1, 20);
+        delay = Math.min(delay, maxBackoffMillis);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+}
@@ -1,55 +1,793 @@
 package com.migrator.core.db;
 
+import com.migrator.core.events.BulkLoadEvent;
+import com.migrator.core.events.CommitEvent;
+import com.migrator.core.events.StatementExecuteEvent;
+import com.migrator.core.sql.ScriptDirectives;
+import com.migrator.core.sql.SqlDialect;
+import com.migrator.core.sql.SqlStatement;
+import com.migrator.core.sql.SqlTokenizer;
+import com.migrator.model.BulkLoadSpec;
+import com.migrator.model.ExecutorOptions;
+import com.migrator.model.MigrationKind;
 import com.migrator.model.MigrationResult;
 import com.migrator.model.MigrationStatus;
 import com.migrator.model.MigrationScript;
+import com.migrator.model.ScriptMetrics;
+import com.migrator.util.DelimitedReader;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 
 public abstract class ScriptExecutor {
+
+    /** Statement types that never return a result set and can be batched */
+    private static final Set<String> BATCHABLE = Set.of("INSERT", "UPDATE", "DELETE", "MERGE");
+
+    /** Keywords that start a new statement inside an MSSQL batch */
+    private static final Set<String> STATEMENT_START = Set.of(
+            "INSERT", "UPDATE", "DELETE", "MERGE", "SELECT", "WITH", "EXEC", "EXECUTE", "DECLARE",
+            "SET", "IF", "BEGIN", "CREATE", "ALTER", "DROP", "TRUNCATE", "PRINT", "RAISERROR", "THROW");
+
+    /** Rows per executeBatch when bulk-loading through plain INSERTs */
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    /** Maximum number of statements per JDBC batch (1 = no batching) */
+    private int batchSize = 1;
+
+    /** Attempts per savepoint chunk; a chunk that keeps failing fails the script */
+    private static final int STATEMENT_ATTEMPTS = 3;
+
+    /** Statements between savepoints inside a transaction (0 = none) */
+    private int savepointInterval = 0;
+
+    private final RetryPolicy retryPolicy;
+
+    /** Timings of the script being executed */
+    private ScriptMetrics metrics;
+
+    protected ScriptExecutor() {
+        this(RetryPolicy.DEFAULT);
+    }
+
+    /**
+     * @param retryPolicy Classification of transient errors of the database
+     */
+    protected ScriptExecutor(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
     protected abstract void execute(MigrationScript script) throws Exception;
-    public void executeWithRetry(MigrationScript script, int maxRetries) {
 
-        int attempt = 1;
+    /**
+     * @return Splitting rules of the target database
+     */
+    protected abstract SqlDialect dialect();
+
+    /**
+     * Streams the data file of a bulk-load migration into its table.
+     * Runs on the migration connection, inside the migration transaction.
+     *
+     * @param script Bulk-load migration (.load descriptor + data file)
+     * @return Number of rows loaded, or -1 when the driver does not report it
+     */
+    protected abstract long bulkLoad(MigrationScript script) throws Exception;
+
+    /**
+     * Enables JDBC batching: consecutive INSERT/UPDATE/DELETE/MERGE
+     * statements are sent with addBatch/executeBatch, up to the given
+     * number per round trip. Any other statement flushes the batch
+     * and runs on its own.
+     *
+     * @param batchSize Statements per batch; 1 disables batching
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1, got " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Applies the command-line settings. Every executor of a run is
+     * configured here, so no code path drops a setting.
+     *
+     * @throws IllegalArgumentException when a setting is not supported
+     *         by this database (online DDL is Postgres only)
+     */
+    public void configure(ExecutorOptions options) {
+        setBatchSize(options.batchSize());
+        setSavepointInterval(options.savepointInterval());
+        if (options.onlineDdl()) {
+            configureOnlineDdl(options.onlineLockTimeoutMillis(), options.onlineLockRetries());
+        }
+    }
+
+    /**
+     * Enables online DDL mode; only the Postgres executor supports it.
+     */
+    protected void configureOnlineDdl(long lockTimeoutMillis, int maxLockRetries) {
+        throw new IllegalArgumentException("--online is only supported for postgres");
+    }
+
+    /**
+     * Runs the script once: bulk load or SQL statements.
+     */
+    private void executeScript(MigrationScript script) throws Exception {
+        if (script.getKind() == MigrationKind.BULK_LOAD) {
+            BulkLoadEvent event = new BulkLoadEvent();
+            event.begin();
+            long rows = bulkLoad(script);
+            event.end();
+            long bytes = Files.size(script.getDataFile());
+            if (event.shouldCommit()) {
+                event.version = script.getVersion();
+                event.bytes = bytes;
+                event.rows = rows;
+                event.commit();
+            }
+            metrics.addRows(rows);
+            metrics.addBytesLoaded(bytes);
+            script.updateStrategy(MigrationStatus.APPLIED);
+            System.out.println("Loaded " + (rows >= 0 ? rows + " rows" : "data file")
+                    + " for version " + script.getVersion());
+        } else {
+            execute(script);
+        }
+    }
+
+    /**
+     * Sets how often a savepoint is taken inside the migration
+     * transaction. On a transient failure, the executor rolls back to
+     * the last savepoint and resumes from there instead of re-running
+     * the whole script. A JDBC batch is never split, so savepoints are
+     * at least batchSize statements apart.
+     *
+     * Off by default: every savepoint is a subtransaction on Postgres,
+     * and many of them slow down the whole database. Use a large
+     * interval for scripts with very many statements.
+     *
+     * @param savepointInterval Statements between savepoints; 0 disables them
+     */
+    public void setSavepointInterval(int savepointInterval) {
+        if (savepointInterval < 0) {
+            throw new IllegalArgumentException("Savepoint interval must not be negative, got " + savepointInterval);
+        }
+        this.savepointInterval = savepointInterval;
+    }
+
+    /**
+     * Streams the script through the tokenizer and executes every
+     * statement on the given connection, batching where possible.
+     * Inside a transaction, statements run in chunks separated by
+     * savepoints (see {@link #setSavepointInterval(int)}).
+     *
+     * @param connection JDBC connection used to execute SQL statements
+     * @param script     Script to execute
+     * @param dialect    Splitting rules of the target database
+     * @throws SQLException when a statement fails; the message names the
+     *                      failing statement and its line in the script
+     * @throws IOException  when the script cannot be read
+     */
+    protected void executeStatements(Connection connection, MigrationScript script, SqlDialect dialect)
+            throws SQLException, IOException {
+
+        boolean resumable = savepointInterval > 0 && !connection.getAutoCommit();
+        int chunkSize = Math.max(savepointInterval, batchSize);
+
+        List<SqlStatement> batch = new ArrayList<>();
+        List<SqlStatement> chunk = new ArrayList<>();
+
+        try (SqlTokenizer statements = new SqlTokenizer(script.openReader(), dialect);
+             Statement stmt = connection.createStatement()) {
+
+            if (!resumable) {
+                while (statements.hasNext()) {
+                    execute(stmt, statements.next(), batch);
+                }
+                executeBatch(stmt, batch);
+
+            } else {
+                Savepoint savepoint = statements.hasNext() ? connection.setSavepoint() : null;
+                while (statements.hasNext()) {
+                    chunk.add(statements.next());
+                    boolean last = !statements.hasNext();
+                    if (chunk.size() >= chunkSize || last) {
+                        savepoint = executeChunk(connection, stmt, chunk, batch, savepoint, last);
+                        chunk.clear();
+                    }
+                }
+            }
+
+            script.updateStrategy(MigrationStatus.APPLIED);
+
+        } catch (StatementFailure e) {
+            throw failure(script, e.statement, e.cause);
+
+        } catch (SQLException e) {
+            throw failure(script, null, e);
+        }
+    }
+
+    /**
+     * Adds the statement to the batch, or flushes the batch and runs
+     * the statement on its own.
+     *
+     * @throws StatementFailure naming the statement that failed
+     */
+    private void execute(Statement stmt, SqlStatement statement, List<SqlStatement> batch) throws SQLException {
+        if (batchSize > 1 && isBatchable(statement)) {
+            stmt.addBatch(statement.sql());
+            batch.add(statement);
+            if (batch.size() >= batchSize) {
+                executeBatch(stmt, batch);
+            }
+            return;
+        }
+
+        executeBatch(stmt, batch);
+        try {
+            StatementExecuteEvent event = new StatementExecuteEvent();
+            event.begin();
+            long start = System.nanoTime();
+            long rows = executeStatement(stmt, statement);
+            metrics.recordStatement(statement.index(), statement.line(), 1, System.nanoTime() - start, rows);
+            event.end();
+            if (event.shouldCommit()) {
+                commitEvent(event, List.of(statement), rows);
+            }
+        } catch (SQLException e) {
+            throw new StatementFailure(statement, e);
+        }
+    }
+
+    /**
+     * Runs a chunk of statements after the given savepoint. A transient
+     * failure rolls back to the savepoint and runs the chunk again, so
+     * earlier chunks are not redone.
+     *
+     * @return Savepoint taken after the chunk, or null after the last one
+     * @throws StatementFailure when the chunk fails for good (marked with
+     *                          {@link #retriesExhausted(SQLException)}
+     *                          after the last attempt), or the rollback to
+     *                          the savepoint is impossible (e.g. SQL Server
+     *                          ends the whole transaction on a deadlock);
+     *                          only the latter reaches the script-level retry
+     */
+    private Savepoint executeChunk(Connection connection, Statement stmt, List<SqlStatement> chunk,
+                                   List<SqlStatement> batch, Savepoint savepoint, boolean last) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                for (SqlStatement statement : chunk) {
+                    execute(stmt, statement, batch);
+                }
+                executeBatch(stmt, batch);
+
+                releaseSavepoint(connection, savepoint);
+                metrics.checkpoint();
+                return last ? null : connection.setSavepoint();
+
+            } catch (StatementFailure e) {
+                stmt.clearBatch();
+                batch.clear();
+
+                SQLException cause = transientCause(e.cause);
+                if (cause == null) {
+                    throw e;
+                }
+                if (attempt >= STATEMENT_ATTEMPTS) {
+                    throw new StatementFailure(e.statement, retriesExhausted(e.cause));
+                }
+                try {
+                    connection.rollback(savepoint);
+                } catch (SQLException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                    throw e;
+                }
+                metrics.rollbackToCheckpoint(cause.getSQLState());
+
+                long backoff = retryPolicy.backoffMillis(attempt);
+                System.out.println("Transient failure" + describe(e.statement) + " (SQLState " + cause.getSQLState()
+                        + ", code " + cause.getErrorCode() + "), resuming from the last savepoint in " + backoff + " ms");
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases a savepoint where the driver supports it. SQL Server and
+     * Oracle have no RELEASE SAVEPOINT; their savepoints end with the
+     * transaction.
+     */
+    private void releaseSavepoint(Connection connection, Savepoint savepoint) throws SQLException {
+        if (releasesSavepoints()) {
+            connection.releaseSavepoint(savepoint);
+        }
+    }
+
+    /**
+     * @return False for databases without RELEASE SAVEPOINT
+     */
+    protected boolean releasesSavepoints() {
+        return true;
+    }
+
+    /**
+     * Executes one statement that is not part of a batch. Subclasses
+     * may wrap it, e.g. with a lock timeout and retries.
+     *
+     * @return Rows affected, 0 when the statement reports none
+     */
+    protected long executeStatement(Statement stmt, SqlStatement statement) throws SQLException {
+        stmt.execute(statement.sql());
+        return updateCount(stmt);
+    }
+
+    /**
+     * @return Update count of the last execute(), 0 for result sets and DDL
+     */
+    protected static long updateCount(Statement stmt) throws SQLException {
+        return Math.max(0, stmt.getUpdateCount());
+    }
+
+    /**
+     * Counts a statement attempt that timed out waiting for a lock.
+     *
+     * @param sqlState    SQLState of the lock timeout
+     * @param waitedNanos Time of the failed attempt plus the backoff after it
+     */
+    protected void recordLockRetry(String sqlState, long waitedNanos) {
+        metrics.recordLockRetry(sqlState, waitedNanos);
+    }
+
+    /**
+     * Decides whether the script runs in one transaction with its
+     * history row. Defaults to the transactional directive.
+     */
+    protected boolean isTransactional(MigrationScript script) {
+        return ScriptDirectives.read(script).isTransactional();
+    }
+
+    /**
+     * Sends the pending batch, if any.
+     *
+     * @throws StatementFailure naming the statement the driver rejected
+     */
+    private void executeBatch(Statement stmt, List<SqlStatement> batch) throws SQLException {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            StatementExecuteEvent event = new StatementExecuteEvent();
+            event.begin();
+            long start = System.nanoTime();
+            int[] counts = stmt.executeBatch();
+            long rows = Arrays.stream(counts).filter(count -> count > 0).asLongStream().sum();
+            SqlStatement first = batch.getFirst();
+            metrics.recordStatement(first.index(), first.line(), batch.size(), System.nanoTime() - start, rows);
+            event.end();
+            if (event.shouldCommit()) {
+                commitEvent(event, batch, rows);
+            }
+
+        } catch (BatchUpdateException e) {
+            throw new StatementFailure(batch.get(failedIndex(e, batch.size())), e);
+
+        } finally {
+            stmt.clearBatch();
+            batch.clear();
+        }
+    }
+
+    /**
+     * Fills in and records a statement event; only called while a
+     * recording has it enabled.
+     */
+    private void commitEvent(StatementExecuteEvent event, List<SqlStatement> statements, long rows) {
+        SqlStatement first = statements.getFirst();
+        event.version = metrics.getVersion();
+        event.statementIndex = first.index() + 1;
+        event.line = first.line();
+        event.statements = statements.size();
+        for (SqlStatement statement : statements) {
+            event.sqlBytes += statement.sql().getBytes(StandardCharsets.UTF_8).length;
+        }
+        event.rows = rows;
+        event.commit();
+    }
+
+    /**
+     * Drivers either stop at the first failure (fewer update counts than
+     * statements) or continue and mark failures with EXECUTE_FAILED.
+     */
+    private static int failedIndex(BatchUpdateException e, int batchLength) {
+        int[] counts = e.getUpdateCounts();
+        if (counts == null) {
+            return 0;
+        }
+        if (counts.length < batchLength) {
+            return counts.length;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == Statement.EXECUTE_FAILED) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * A batch entry must be a single statement, or the update counts no
+     * longer line up with the statements. MSSQL scripts split on GO, so
+     * a batch is only batched when it holds one statement.
+     */
+    private boolean isBatchable(SqlStatement statement) {
+        String sql = statement.sql();
+        String keyword = leadingKeyword(sql);
+        if (!BATCHABLE.contains(keyword)) {
+            return false;
+        }
+
+        // RETURNING (Postgres) and OUTPUT (MSSQL) produce result sets
+        String upper = sql.toUpperCase(Locale.ROOT);
+        if (upper.contains("RETURNING") || upper.contains("OUTPUT")) {
+            return false;
+        }
+        return dialect() != SqlDialect.MSSQL || isSingleStatement(upper, keyword);
+    }
+
+    /**
+     * Conservative check that an MSSQL batch holds one statement: no
+     * semicolon before its end and no later line starting a statement
+     * (apart from the SET clause of an UPDATE). Anything doubtful runs
+     * on its own.
+     */
+    private static boolean isSingleStatement(String upper, String keyword) {
+        String body = upper.strip();
+        if (body.endsWith(";")) {
+            body = body.substring(0, body.length() - 1);
+        }
+        if (body.indexOf(';') >= 0) {
+            return false;
+        }
+
+        boolean updateSet = keyword.equals("UPDATE");
+        String[] lines = body.split("\\R");
+        for (int i = 1; i < lines.length; i++) {
+            String next = leadingKeyword(lines[i].strip());
+            if (updateSet && next.equals("SET")) {
+                updateSet = false;
+            } else if (STATEMENT_START.contains(next)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Leading word of the SQL text in upper case, empty if none
+     */
+    private static String leadingKeyword(String sql) {
+        int end = 0;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        return sql.substring(0, end).toUpperCase(Locale.ROOT);
+    }
 
-        while (true) {
+    /**
+     * Marks a failure that a subclass already retried as often as
+     * allowed, e.g. online lock retries. No outer layer retries it.
+     */
+    protected static SQLException retriesExhausted(SQLException e) {
+        return new RetriesExhausted(e);
+    }
+
+    /**
+     * @return The transient SQLException of the error, or null when it
+     *         is permanent or its retries are exhausted
+     */
+    private SQLException transientCause(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof RetriesExhausted) {
+                return null;
+            }
+        }
+        return retryPolicy.transientCause(error);
+    }
+
+    private static SQLException failure(MigrationScript script, SqlStatement statement, SQLException e) {
+        SQLException cause = e.getNextException() != null ? e.getNextException() : e;
+        return new SQLException(
+                "Migration failed while executing version " + script.getVersion()
+                        + " (" + script.getDescription() + ")"
+                        + describe(statement) + "\n"
+                        + "Cause: " + cause.getMessage(),
+                cause.getSQLState(),
+                cause.getErrorCode(),
+                e
+        );
+    }
+
+    /**
+     * Formats the position of a failing statement for error messages.
+     *
+     * @param statement Statement being executed, or null if none started
+     * @return e.g. " at statement 3 (line 42)", or an empty string
+     */
+    protected static String describe(SqlStatement statement) {
+        if (statement == null) {
+            return "";
+        }
+        return " at statement " + (statement.index() + 1) + " (line " + statement.line() + ")";
+    }
+
+    /**
+     * Resolves the target columns of a bulk load: the descriptor's
+     * column list, or the header line of the data file.
+     */
+    protected static List<String> loadColumns(BulkLoadSpec spec) throws IOException {
+        if (!spec.columns().isEmpty()) {
+            return spec.columns();
+        }
+
+        try (DelimitedReader rows = new DelimitedReader(
+                Files.newBufferedReader(spec.dataFile(), spec.encoding()), spec.delimiter())) {
+            String[] header = rows.next();
+            if (header == null) {
+                return Collections.emptyList();
+            }
+            return Arrays.stream(header).map(String::strip).toList();
+        }
+    }
+
+    /**
+     * Portable bulk load: reads the data file row by row and inserts it
+     * with a batched prepared INSERT. Used where no native bulk API is
+     * available.
+     *
+     * @return Number of rows inserted
+     */
+    protected long insertRows(Connection connection, BulkLoadSpec spec) throws SQLException, IOException {
+        List<String> columns = loadColumns(spec);
+        if (columns.isEmpty()) {
+            return 0;
+        }
+
+        String sql = "INSERT INTO " + spec.table()
+                + " (" + String.join(", ", columns) + ")"
+                + " VALUES (" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+
+        try (DelimitedReader rows = new DelimitedReader(
+                Files.newBufferedReader(spec.dataFile(), spec.encoding()), spec.delimiter());
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+
+            if (spec.header()) {
+                rows.next();
+            }
+
+            long count = 0;
+            String[] row;
+            while ((row = rows.next()) != null) {
+                if (row.length != columns.size()) {
+                    throw new SQLException("Line " + rows.getLineNumber() + " of " + spec.dataFile().getFileName()
+                            + " has " + row.length + " fields, expected " + columns.size());
+                }
+                for (int i = 0; i < row.length; i++) {
+                    ps.setString(i + 1, row[i]);
+                }
+                ps.addBatch();
+
+                if (++count % LOAD_BATCH_SIZE == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+
+            return count;
+        }
+    }
+
+    /**
+     * Executes the script and records it in the history table in one
+     * transaction. Either both the script and its history row are
+     * committed, or neither is.
+     *
+     * A transient failure (see {@link RetryPolicy}) rolls the whole
+     * transaction back and runs the script again after a backoff, so
+     * every attempt starts clean. Permanent failures are not retried.
+     *
+     * Each failure is retried by one layer only: online lock retries of
+     * the subclass, savepoint chunk retries, or this script-level retry
+     * for failures that could not be resumed from a savepoint. A layer
+     * that gives up makes the failure permanent, so a failure that keeps
+     * recurring runs its statement at most maxRetries times, or
+     * STATEMENT_ATTEMPTS (3) times with savepoints, or the online lock
+     * retries for a DDL statement in online mode.
+     *
+     * @param connection Connection shared by this executor and the repository
+     * @param script     Script to apply
+     * @param maxRetries Maximum number of attempts
+     * @param repository History repository bound to the same connection
+     */
+    public MigrationResult executeTransactional(Connection connection, MigrationScript script, int maxRetries,
+                                                DbVersionRepository repository) {
+        metrics = new ScriptMetrics(script);
+
+        ScriptDirectives directives;
+        boolean transactional;
+        try {
+            directives = ScriptDirectives.read(script);
+            transactional = !directives.isBackfill() && isTransactional(script);
+        } catch (RuntimeException e) {
+            // Unreadable script or invalid directive
+            script.updateStrategy(MigrationStatus.FAILED);
+            metrics.finish();
+            return MigrationResult.failure(script, e, metrics);
+        }
+
+        if (directives.isBackfill()) {
+            return executeBackfill(connection, script, directives, maxRetries, repository);
+        }
+        if (!transactional) {
+            return executeAutocommit(script, repository);
+        }
+
+        for (int attempt = 1; ; attempt++) {
             try {
-                execute(script);
-                return;
+                metrics.startAttempt();
+                connection.setAutoCommit(false);
+                executeScript(script);
+                metrics.finish();
+                repository.save(script, metrics);
+
+                CommitEvent commit = new CommitEvent();
+                commit.begin();
+                connection.commit();
+                commit.end();
+                if (commit.shouldCommit()) {
+                    commit.version = script.getVersion();
+                    commit.attempt = attempt;
+                    commit.commit();
+                }
+                return MigrationResult.success(script, metrics);
+
             } catch (Exception e) {
-                if (attempt >= maxRetries) {
+                boolean clean = rollback(connection);
+                SQLException cause = transientCause(e);
+
+                if (cause == null || attempt >= maxRetries || !clean) {
                     script.updateStrategy(MigrationStatus.FAILED);
-                    throw new RuntimeException(
-                            "Migration failed after " + maxRetries + " attempts", e
-                    );
+                    metrics.finish();
+                    return MigrationResult.failure(script, attempt == 1 ? e
+                            : new RuntimeException("Migration failed after " + attempt + " attempts", e), metrics);
                 }
 
-                System.out.println("Migration failed, retrying... Attempt " + attempt);
+                metrics.recordAttemptRetry(cause.getSQLState());
+                long backoff = retryPolicy.backoffMillis(attempt);
+                System.out.println("Transient failure on version " + script.getVersion()
+                        + " (SQLState " + cause.getSQLState() + ", code " + cause.getErrorCode() + "), retrying in "
+                        + backoff + " ms... Attempt " + (attempt + 1) + " of " + maxRetries);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    script.updateStrategy(MigrationStatus.FAILED);
+                    metrics.finish();
+                    return MigrationResult.failure(script, e, metrics);
+                }
 
-                attempt++;
+            } finally {
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException ignored) {}
             }
         }
     }
 
-    public MigrationResult executeTransactional(Connection connection, MigrationScript script, int maxRetries) {
+    /**
+     * Rolls back the failed attempt.
+     *
+     * @return False when the connection is no longer usable, in which
+     *         case retrying on it is pointless
+     */
+    private static boolean rollback(Connection connection) {
+        try {
+            connection.rollback();
+            return connection.isValid(5);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs a backfill migration in committed chunks (see {@link BackfillRunner}).
+     * The version is recorded only after the last chunk.
+     */
+    private MigrationResult executeBackfill(Connection connection, MigrationScript script, ScriptDirectives directives,
+                                            int maxRetries, DbVersionRepository repository) {
         try {
-            connection.setAutoCommit(false);
-            executeWithRetry(script, maxRetries);
-            connection.commit();
-            return MigrationResult.success(script);
+            metrics.startAttempt();
+            new BackfillRunner(connection, repository, retryPolicy, dialect()).run(script, directives, maxRetries, metrics);
+            script.updateStrategy(MigrationStatus.APPLIED);
+            return MigrationResult.success(script, metrics);
 
         } catch (Exception e) {
-            try {
-                connection.rollback();
-            } catch (SQLException ignored) {}
-            return MigrationResult.failure(script, e);
+            script.updateStrategy(MigrationStatus.FAILED);
+            metrics.finish();
+            return MigrationResult.failure(script, e, metrics);
+        }
+    }
 
-        } finally {
-            try {
-                connection.setAutoCommit(true);
-            } catch (SQLException ignored) {}
+    /**
+     * Runs a non-transactional script: every statement commits on its
+     * own, and the history row is written once all of them succeeded.
+     * The script is not retried as a whole, since the statements that
+     * ran before a failure stay applied; it should be safe to re-run.
+     */
+    private MigrationResult executeAutocommit(MigrationScript script, DbVersionRepository repository) {
+        try {
+            System.out.println("Version " + script.getVersion() + " runs outside a transaction");
+            metrics.startAttempt();
+            executeScript(script);
+            metrics.finish();
+            repository.save(script, metrics);
+            return MigrationResult.success(script, metrics);
+
+        } catch (Exception e) {
+            script.updateStrategy(MigrationStatus.FAILED);
+            metrics.finish();
+            return MigrationResult.failure(script, new RuntimeException(
+                    "Non-transactional version " + script.getVersion()
+                            + " failed; statements before the failure remain applied", e), metrics);
+        }
+    }
+
+    /**
+     * A failure that was retried as often as allowed; keeps the SQLState
+     * and message of the last attempt.
+     */
+    private static final class RetriesExhausted extends SQLException {
+        private static final long serialVersionUID = 1L;
+
+        RetriesExhausted(SQLException cause) {
+            super(cause.getMessage(), cause.getSQLState(), cause.getErrorCode(), cause);
+        }
+    }
+
+    /**
+     * Carries the statement that failed, alone or inside a JDBC batch.
+     */
+    private static final class StatementFailure extends SQLException {
+        private static final long serialVersionUID = 1L;
+
+        private final transient SqlStatement statement;
+        private final SQLException cause;
+
+        StatementFailure(SqlStatement statement, SQLException cause) {
+            super(cause.getMessage(), cause.getSQLState(), cause.getErrorCode(), cause);
+            this.statement = statement;
+            this.cause = cause;
         }
     }
 }
@@ -0,0 +1,43 @@
+package com.migrator.core.db;
+
+import com.migrator.core.sql.SqlDialect;
+
+import java.sql.SQLException;
+
+/**
+ * Asks the database how expensive a statement would be, without
+ * running it.
+ *
+ * Implementations only send plan requests (EXPLAIN and the vendor
+ * equivalents) and catalog queries; migration statements themselves
+ * are never executed.
+ */
+public interface StatementPlanner {
+
+    /**
+     * @return Splitting rules of the database
+     */
+    SqlDialect dialect();
+
+    /**
+     * @param sql DML statement
+     * @return Estimated number of rows the statement touches
+     * @throws SQLException when the database cannot plan it, e.g. because
+     *                      it refers to a table created by an earlier
+     *                      pending migration
+     */
+    long estimateRows(String sql) throws SQLException;
+
+    /**
+     * @param table Table name as written in the migration
+     * @return Catalog size of the table, or null when it does not exist (yet)
+     */
+    TableSize tableSize(String table) throws SQLException;
+
+    /**
+     * @param rows  Estimated row count from the catalog statistics
+     * @param bytes Size on disk including indexes, or -1 when unknown
+     */
+    record TableSize(long rows, long bytes) {
+    }
+}
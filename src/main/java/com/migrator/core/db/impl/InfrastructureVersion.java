@@ -0,0 +1,86 @@
+package com.migrator.core.db.impl;
+
+/**
+ * Versioning of the migrator's own tables (schema_migrations,
+ * schema_migration_lock, ...).
+ *
+ * The version is stored as a marker on the schema_migrations table
+ * itself (a table comment, or an extended property on SQL Server), so
+ * checking it is a single catalog lookup and needs no extra table.
+ * The DDL only runs when the marker is missing or older than
+ * {@link #CURRENT}.
+ *
+ * Upgrade steps (each repository implements them for its database):
+ *   1 - schema_migrations, schema_migration_lock and its single row
+ *   2 - schema_migration_backfill (progress of backfill migrations)
+ *   3 - execution_ms and rows_affected columns on schema_migrations
+ *   4 - completions counter on schema_migration_lock (see MigrationCoordinator)
+ *
+ * A table without a marker was created by an older release; it is
+ * treated as version 0 and upgraded with idempotent DDL.
+ *
+ * Read-only runs (validate, plan) never upgrade: they read the tables
+ * as they are and only report a missing or older version.
+ */
+public final class InfrastructureVersion {
+
+    /** Version this build creates and expects */
+    public static final int CURRENT = 4;
+
+    /** Version reported by read-only runs when schema_migrations does not exist */
+    public static final int MISSING = -1;
+
+    private static final String PREFIX = "migrator-infrastructure:";
+
+    private InfrastructureVersion() {
+    }
+
+    /**
+     * @param marker Stored marker text, or null when absent
+     * @return Parsed version; 0 when the marker is missing or unrecognized
+     */
+    public static int parse(String marker) {
+        if (marker == null || !marker.startsWith(PREFIX)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(marker.substring(PREFIX.length()).strip());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** @return Marker text to store for the given version */
+    public static String marker(int version) {
+        return PREFIX + version;
+    }
+
+    /**
+     * Prints what a read-only run found, in place of the upgrade a
+     * migration run would make.
+     *
+     * @param version Version found, or {@link #MISSING}
+     */
+    public static void reportReadOnly(int version) {
+        if (version == MISSING) {
+            System.out.println("No migration tables yet: no migration is recorded as applied.");
+        } else if (version < CURRENT) {
+            System.out.println("Migration tables are at infrastructure version " + version
+                    + ", older than this migrator (" + CURRENT + "). Reading them as they are;"
+                    + " the next migration run upgrades them.");
+        } else {
+            warnIfNewer(version);
+        }
+    }
+
+    /**
+     * Prints a warning when the database was set up by a newer release.
+     * Newer versions only add objects, so this build can still run.
+     */
+    public static void warnIfNewer(int version) {
+        if (version > CURRENT) {
+            System.out.println("Migration tables are at infrastructure version " + version
+                    + ", newer than this migrator (" + CURRENT + "). Continuing.");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.migrator.core.db.impl;
+
+/**
+ * Decides whether this process migrates (leader) or waits for another
+ * process that is already migrating the same database (follower).
+ *
+ * Usage:
+ * ------
+ *   if (new MigrationCoordinator(lock, timeoutMillis).awaitLeadership()) {
+ *       try { ...migrate...; lock.signalCompletion(); } finally { lock.release(); }
+ *   }
+ *
+ * The completion token is read before the first lock attempt, so a
+ * leader finishing between that attempt and the read is not mistaken
+ * for one that crashed. A follower then waits with
+ * {@link MigrationLock#awaitRelease(long)} and retries the lock. Once
+ * it gets the lock:
+ * - the token changed: the leader finished successfully, so the
+ *   follower releases the lock and has nothing left to do. This
+ *   includes a first deploy, where the token goes from "0" (no tables)
+ *   to "1";
+ * - the token did not change: the leader failed or died, so the
+ *   follower takes over and migrates itself. Creating the tables
+ *   leaves the token at "0", so a leader failing after that is not
+ *   taken for a completed one.
+ * When the token cannot be read, the follower takes over.
+ */
+public class MigrationCoordinator {
+
+    private final MigrationLock lock;
+    private final long timeoutMillis;
+
+    /**
+     * @param lock          Lock on a dedicated connection
+     * @param timeoutMillis Maximum time to wait for the leader
+     */
+    public MigrationCoordinator(MigrationLock lock, long timeoutMillis) {
+        this.lock = lock;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return True when this process holds the lock and must migrate,
+     *         false when a leader completed the migration meanwhile
+     *         (the lock is not held in that case)
+     * @throws IllegalStateException when the leader did not finish in time
+     */
+    public boolean awaitLeadership() throws Exception {
+        String token = lock.completionToken();
+        if (lock.tryAcquire()) {
+            return true;
+        }
+
+        System.out.println("Another process is migrating this database, following it...");
+
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+        while (true) {
+            long remaining = (deadline - System.nanoTime()) / 1_000_000;
+            if (remaining <= 0) {
+                throw new IllegalStateException("Timed out after " + timeoutMillis
+                        + " ms waiting for the migration leader");
+            }
+
+            lock.awaitRelease(remaining);
+
+            if (!lock.tryAcquire()) {
+                continue;
+            }
+
+            String current = lock.completionToken();
+            if (token != null && current != null && !current.equals(token)) {
+                lock.release();
+                System.out.println("Migration leader finished successfully, nothing left to do.");
+                return false;
+            }
+
+            System.out.println("Migration leader stopped without completing, taking over...");
+            return true;
+        }
+    }
+}
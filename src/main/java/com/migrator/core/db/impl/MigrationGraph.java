@@ -0,0 +1,136 @@
+package com.migrator.core.db.impl;
+
+import com.migrator.core.sql.ScriptDirectives;
+import com.migrator.model.AppliedVersionIndex;
+import com.migrator.model.MigrationScript;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Dependency graph of the pending scripts of one run.
+ *
+ * Rules, based on {@link ScriptDirectives}:
+ * - A script without directives is a barrier: it waits for every
+ *   earlier pending script, and every later script waits for it.
+ *   Without any directives the graph is the plain version order.
+ * - A script with depends-on waits for the listed versions that are
+ *   still pending (applied ones are already satisfied).
+ * - A script with a group waits for the previous script of the group.
+ * - Scripts with directives also wait for the last barrier before them.
+ *
+ * Dependencies can only point to earlier versions, so the graph never
+ * has cycles.
+ */
+public class MigrationGraph {
+
+    private final List<MigrationScript> scripts;
+
+    /** Indexes of the scripts waiting on each script */
+    private final List<List<Integer>> dependents;
+
+    /** Number of dependencies of each script */
+    private final int[] dependencyCount;
+
+    private MigrationGraph(List<MigrationScript> scripts, List<List<Integer>> dependents, int[] dependencyCount) {
+        this.scripts = scripts;
+        this.dependents = dependents;
+        this.dependencyCount = dependencyCount;
+    }
+
+    /**
+     * Builds the graph, reading the directives of every pending script.
+     *
+     * @param pending       Pending scripts in version order
+     * @param applied       Versions already applied
+     * @param localVersions Versions of all local scripts
+     * @throws IllegalArgumentException listing every invalid dependency
+     */
+    public static MigrationGraph build(List<MigrationScript> pending, AppliedVersionIndex applied,
+                                       Set<String> localVersions) {
+        int n = pending.size();
+        List<List<Integer>> dependents = new ArrayList<>();
+        int[] dependencyCount = new int[n];
+        List<String> problems = new ArrayList<>();
+
+        Map<String, Integer> indexByVersion = new HashMap<>();
+        Map<String, Integer> lastInGroup = new HashMap<>();
+        int lastBarrier = -1;
+
+        for (int i = 0; i < n; i++) {
+            dependents.add(new ArrayList<>());
+            MigrationScript script = pending.get(i);
+            ScriptDirectives directives = ScriptDirectives.read(script);
+            Set<Integer> dependencies = new TreeSet<>();
+
+            if (!directives.isIndependent()) {
+                // Everything before the previous barrier is already behind it
+                for (int j = Math.max(lastBarrier, 0); j < i; j++) {
+                    dependencies.add(j);
+                }
+                lastBarrier = i;
+            } else {
+                if (lastBarrier >= 0) {
+                    dependencies.add(lastBarrier);
+                }
+
+                for (String version : directives.dependsOn()) {
+                    Integer j = indexByVersion.get(version);
+                    if (j != null) {
+                        dependencies.add(j);
+                    } else if (!applied.contains(version)) {
+                        problems.add(script.getVersion() + " depends on " + version
+                                + (localVersions.contains(version) ? ", which is not an earlier version" : ", which does not exist"));
+                    }
+                }
+
+                String group = directives.group();
+                if (group != null) {
+                    Integer previous = lastInGroup.put(group, i);
+                    if (previous != null) {
+                        dependencies.add(previous);
+                    }
+                }
+            }
+
+            for (int j : dependencies) {
+                dependents.get(j).add(i);
+            }
+            dependencyCount[i] = dependencies.size();
+            indexByVersion.put(script.getVersion(), i);
+        }
+
+        if (!problems.isEmpty()) {
+            throw new IllegalArgumentException(problems.size() + " invalid migration dependency(ies):\n  "
+                    + String.join("\n  ", problems));
+        }
+
+        return new MigrationGraph(pending, dependents, dependencyCount);
+    }
+
+    public int size() {
+        return scripts.size();
+    }
+
+    public MigrationScript script(int index) {
+        return scripts.get(index);
+    }
+
+    /**
+     * @return Copy of the dependency counts, to be decremented by a scheduler
+     */
+    public int[] dependencyCounts() {
+        return dependencyCount.clone();
+    }
+
+    /**
+     * @return Indexes of the scripts that wait for the given script
+     */
+    public List<Integer> dependents(int index) {
+        return dependents.get(index);
+    }
+}
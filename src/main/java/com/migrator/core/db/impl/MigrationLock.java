@@ -1,15 +1,63 @@
 package com.migrator.core.db.impl;
 
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exclusive lock that keeps two processes from migrating the same
+ * database at once. Implementations hold it on a dedicated connection.
+ *
+ * Besides the lock itself, the interface lets followers wait for a
+ * leader (see {@link MigrationCoordinator}): the leader signals a
+ * successful run, and followers detect it through a completion token
+ * that changes with every signal. Implementations count completions in
+ * schema_migration_lock.completions, a column that only
+ * signalCompletion() changes (creating the tables leaves it at 0).
+ */
 public interface MigrationLock {
 
+    /** Base interval of the default polling wait */
+    long POLL_INTERVAL_MILLIS = 1_000;
+
     /**
      * Acquires an exclusive lock for database migration.
      * This method MUST block or fail if another migration is running.
      */
     void acquire() throws Exception;
 
+    /**
+     * Takes the lock only if it is free right now.
+     *
+     * @return True when the lock was acquired
+     */
+    boolean tryAcquire() throws Exception;
+
     /**
      * Releases the previously acquired lock.
      */
     void release() throws Exception;
+
+    /**
+     * Records that the holder finished migrating successfully and wakes
+     * up waiting followers. Called while holding the lock.
+     */
+    void signalCompletion() throws Exception;
+
+    /**
+     * @return Value that changes with every {@link #signalCompletion()}:
+     *         "0" while the tables do not exist yet, null when it cannot
+     *         be read
+     */
+    String completionToken();
+
+    /**
+     * Waits until the lock holder may have finished, or the time is up.
+     * The default polls: it sleeps about POLL_INTERVAL_MILLIS (with
+     * jitter, so followers do not check in lockstep).
+     *
+     * @param maxWaitMillis Upper bound of the wait
+     */
+    default void awaitRelease(long maxWaitMillis) throws Exception {
+        long jittered = POLL_INTERVAL_MILLIS + ThreadLocalRandom.current().nextLong(POLL_INTERVAL_MILLIS);
+        Thread.sleep(Math.max(1, Math.min(maxWaitMillis, jittered)));
+    }
 }
@@ -0,0 +1,213 @@
+package com.migrator.core.db.impl;
+
+import com.migrator.core.db.DbVersionRepository;
+import com.migrator.core.db.StatementPlanner;
+import com.migrator.core.db.StatementPlanner.TableSize;
+import com.migrator.core.sql.ScriptDirectives;
+import com.migrator.core.sql.SqlStatement;
+import com.migrator.core.sql.SqlTokenizer;
+import com.migrator.core.sql.StatementImpact;
+import com.migrator.model.AppliedVersionIndex;
+import com.migrator.model.BulkLoadSpec;
+import com.migrator.model.MigrationKind;
+import com.migrator.model.MigrationScript;
+
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates what the pending migrations would cost, without applying
+ * them.
+ *
+ * Responsibilities:
+ * -----------------
+ * - Find the pending scripts, like a migrate run would
+ * - Ask the database's planner for the rows each DML statement touches
+ * - Look up the size of tables that DDL scans or rewrites
+ * - Print the statements ranked by estimated rows, with lock notes
+ *
+ * Only plan requests and catalog queries are sent; no migration
+ * statement is executed and no lock is taken. Estimates come from the
+ * table statistics, so they are as fresh as the last ANALYZE. A
+ * statement on a table created by an earlier pending script cannot be
+ * planned and is reported as such.
+ */
+public class MigrationPlanner {
+
+    /** Longest statement text shown in the report */
+    private static final int SQL_PREVIEW_LENGTH = 70;
+
+    private final ScriptLoader loader;
+    private final DbVersionRepository repository;
+    private final StatementPlanner planner;
+
+    /** Table sizes by name as written, null for tables that do not exist */
+    private final Map<String, TableSize> tableSizes = new HashMap<>();
+
+    public MigrationPlanner(ScriptLoader loader, DbVersionRepository repository, StatementPlanner planner) {
+        this.loader = loader;
+        this.repository = repository;
+        this.planner = planner;
+    }
+
+    /**
+     * Plans every pending script and prints the report.
+     *
+     * @return Estimates, highest row count first
+     * @throws Exception when scripts or history cannot be read
+     */
+    public List<Estimate> plan() throws Exception {
+
+        System.out.println("Loading migration scripts...");
+        AppliedVersionIndex.Diff diff = repository.getAppliedVersions().diff(loader.loadScripts());
+        List<MigrationScript> pending = diff.pending();
+
+        List<Estimate> estimates = new ArrayList<>();
+        for (MigrationScript script : pending) {
+            if (script.getKind() == MigrationKind.BULK_LOAD) {
+                estimates.add(planBulkLoad(script));
+                continue;
+            }
+
+            ScriptDirectives directives = ScriptDirectives.read(script);
+            if (directives.isBackfill()) {
+                estimates.add(planBackfill(script, directives));
+                continue;
+            }
+
+            try (SqlTokenizer tokenizer = new SqlTokenizer(script.openReader(), planner.dialect())) {
+                while (tokenizer.hasNext()) {
+                    estimates.add(planStatement(script, tokenizer.next()));
+                }
+            }
+        }
+
+        estimates.sort(Comparator.comparingLong(Estimate::rows).reversed());
+        print(pending.size(), estimates);
+        return estimates;
+    }
+
+    private Estimate planStatement(MigrationScript script, SqlStatement statement) {
+        String where = script.getVersion() + ":" + statement.line();
+        String sql = preview(statement.sql());
+        StatementImpact impact = StatementImpact.of(statement.sql());
+
+        if (impact.kind() == StatementImpact.Kind.DML) {
+            try {
+                return new Estimate(where, sql, planner.estimateRows(statement.sql()), "");
+            } catch (SQLException e) {
+                return new Estimate(where, sql, 0, "cannot estimate: " + firstLine(e.getMessage()));
+            }
+        }
+
+        if (!impact.isFullTable()) {
+            return new Estimate(where, sql, 0, "metadata only");
+        }
+
+        TableSize size = tableSize(impact.table());
+        if (size == null) {
+            return new Estimate(where, sql, 0, "table " + impact.table() + " does not exist yet");
+        }
+        String note = (impact.kind() == StatementImpact.Kind.REWRITE ? "rewrites" : "scans")
+                + " " + impact.table() + describe(size)
+                + (impact.blocksWrites() ? ", blocks writes" : "");
+        return new Estimate(where, sql, size.rows(), note);
+    }
+
+    private Estimate planBackfill(MigrationScript script, ScriptDirectives directives) {
+        String key = directives.backfillKey();
+        String table = key.substring(0, key.lastIndexOf('.'));
+        TableSize size = tableSize(table);
+
+        return new Estimate(script.getVersion(), "backfill " + script.getDescription(),
+                size == null ? 0 : size.rows(),
+                "chunks of " + directives.chunkSize() + " on " + key
+                        + (size == null ? ", table does not exist yet" : describe(size)));
+    }
+
+    private Estimate planBulkLoad(MigrationScript script) throws Exception {
+        BulkLoadSpec spec = BulkLoadSpec.read(script.getSource(), script.getDataFile());
+        TableSize size = tableSize(spec.table());
+
+        return new Estimate(script.getVersion(), "bulk load " + script.getDataFile().getFileName(), 0,
+                "file " + bytes(Files.size(script.getDataFile())) + " into " + spec.table()
+                        + (size == null ? " (does not exist yet)" : describe(size)));
+    }
+
+    /**
+     * Catalog size of a table, looked up once per name. Lookup errors
+     * (e.g. missing catalog permissions) are reported as unknown.
+     */
+    private TableSize tableSize(String table) {
+        if (tableSizes.containsKey(table)) {
+            return tableSizes.get(table);
+        }
+        TableSize size;
+        try {
+            size = planner.tableSize(table);
+        } catch (SQLException e) {
+            System.out.println("WARNING: Could not read the size of " + table + ": " + firstLine(e.getMessage()));
+            size = new TableSize(0, -1);
+        }
+        tableSizes.put(table, size);
+        return size;
+    }
+
+    private static void print(int scripts, List<Estimate> estimates) {
+        System.out.println();
+        System.out.println("Plan for " + scripts + " pending migration(s), " + estimates.size()
+                + " step(s), by estimated rows:");
+        int rank = 1;
+        for (Estimate estimate : estimates) {
+            System.out.printf("%4d. %12s rows  %-18s %s%n", rank++, estimate.rows(), estimate.where(), estimate.sql());
+            if (!estimate.note().isEmpty()) {
+                System.out.println("      " + " ".repeat(18) + estimate.note());
+            }
+        }
+        System.out.println("Total estimated rows: "
+                + estimates.stream().mapToLong(Estimate::rows).sum() + " (nothing was applied)");
+    }
+
+    private static String describe(TableSize size) {
+        return " (~" + size.rows() + " rows" + (size.bytes() >= 0 ? ", " + bytes(size.bytes()) : "") + ")";
+    }
+
+    private static String bytes(long bytes) {
+        if (bytes < 1024 * 1024) {
+            return (bytes / 1024) + " KB";
+        }
+        if (bytes < 1024L * 1024 * 1024) {
+            return (bytes / (1024 * 1024)) + " MB";
+        }
+        return String.format("%.1f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+
+    private static String preview(String sql) {
+        String text = sql.strip().replaceAll("\\s+", " ");
+        return text.length() <= SQL_PREVIEW_LENGTH ? text : text.substring(0, SQL_PREVIEW_LENGTH - 3) + "...";
+    }
+
+    private static String firstLine(String message) {
+        if (message == null) {
+            return "unknown error";
+        }
+        int end = message.indexOf('\n');
+        return end < 0 ? message : message.substring(0, end);
+    }
+
+    /**
+     * One planned step.
+     *
+     * @param where Version, and line of the statement in the script
+     * @param sql   Shortened statement text
+     * @param rows  Estimated rows touched, scanned or rewritten
+     * @param note  Lock and size notes, or empty
+     */
+    public record Estimate(String where, String sql, long rows, String note) {
+    }
+}
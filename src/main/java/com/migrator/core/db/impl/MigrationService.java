@@ -3,12 +3,24 @@ package com.migrator.core.db.impl;
 import com.migrator.core.db.DbVersionRepository;
 import com.migrator.core.db.ScriptExecutor;
 import com.migrator.core.failure.FailureStrategy;
+import com.migrator.model.AppliedVersionIndex;
 import com.migrator.model.MigrationResult;
 import com.migrator.model.MigrationScript;
+import com.migrator.model.RunReport;
+import com.migrator.model.ScriptMetrics;
 
 import java.sql.Connection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 /**
  * Main orchestrator of the migration engine.
@@ -18,7 +30,8 @@ import java.util.Set;
  * - Load all migration scripts from filesystem
  * - Determine which scripts have NOT been applied yet
  * - Execute pending migrations in order
- * - Save each successfully applied script to the database
+ * - Save each successfully applied script to the database,
+ *   in the same transaction as the script itself
  *
  * This class does not know how to:
  * - read files (handled by ScriptLoader)
@@ -34,6 +47,11 @@ public class MigrationService {
     private final ScriptExecutor executor;
     private static final int MAX_RETRIES = 3;
 
+    /** Receives every script result, or null */
+    private RunReport report;
+
+    /** Schema the results are recorded under (tenant runs), or null */
+    private String reportSchema;
 
     public MigrationService(ScriptLoader loader,
                             DbVersionRepository repo,
@@ -43,6 +61,24 @@ public class MigrationService {
         this.executor = executor;
     }
 
+    /**
+     * Adds the result of every executed script to the given report.
+     */
+    public void setReport(RunReport report) {
+        setReport(report, null);
+    }
+
+    /**
+     * Adds the result of every executed script to a report shared by
+     * several schemas, e.g. the tenants of one database.
+     *
+     * @param schema Schema recorded with each result
+     */
+    public void setReport(RunReport report, String schema) {
+        this.report = report;
+        this.reportSchema = schema;
+    }
+
     /**
      * Main entrypoint for running migrations.
      *
@@ -51,33 +87,213 @@ public class MigrationService {
      * 2. Fetch applied versions from database
      * 3. Filter scripts that are NOT applied yet
      * 4. Execute each pending script in order
-     * 5. Save migration record in DB
+     * 5. Save migration record in DB (same transaction as step 4)
      *
      * @throws Exception if any migration fails
      */
     public void migrate(Connection connection, FailureStrategy strategy) throws Exception {
 
         System.out.println("Loading migration scripts...");
-        List<MigrationScript> scripts = loader.loadScripts();
+        migrate(connection, strategy, loader.loadScripts());
+    }
 
-        Set<String> applied = repository.getAppliedVersions();
+    /**
+     * Applies the pending scripts of an already loaded script set.
+     * Used when the same scripts run against several databases.
+     *
+     * @param scripts Scripts sorted by version, owned by this run
+     * @return Number of scripts applied
+     * @throws Exception if any migration fails
+     */
+    public int migrate(Connection connection, FailureStrategy strategy, List<MigrationScript> scripts) throws Exception {
 
-        List<MigrationScript> pending = scripts.stream()
-                .filter(s -> !applied.contains(s.getVersion()))
-                .toList();
+        AppliedVersionIndex history = repository.getAppliedVersions();
 
-        for (MigrationScript script : pending) {
+        // Both sides are sorted: one linear pass finds pending scripts
+        AppliedVersionIndex.Diff diff = history.diff(scripts);
+        List<MigrationScript> pending = diff.pending();
+        reportDiff(diff);
+        if (report != null) {
+            report.addPending(pending.size());
+        }
 
-            MigrationResult result = executor.executeTransactional(connection, script, MAX_RETRIES);
+        // Hash pending scripts up front, in parallel
+        loader.preload(pending);
 
-            repository.save(script);
+        int applied = 0;
+        for (MigrationScript script : pending) {
 
+            // Script and history row commit together
+            MigrationResult result = executor.executeTransactional(connection, script, MAX_RETRIES, repository);
+            record(result);
+
+            if (result.isSuccess()) {
+                applied++;
+            }
             if (!strategy.shouldContinue(result)) {
                 throw result.getError();
             }
         }
 
         System.out.println("All pending migrations applied.");
+        return applied;
+    }
+
+    /**
+     * Applies pending scripts concurrently, following the dependencies
+     * declared in script headers (see {@link MigrationGraph}). Scripts
+     * without directives keep the strict version order.
+     *
+     * The service's own connection is the first worker; each extra
+     * session adds one. A script and its history row commit together
+     * on the worker that ran it.
+     *
+     * Failure handling follows the strategy: when it says stop, no new
+     * script starts, running ones finish and the first error is thrown.
+     * Otherwise scripts waiting on a failed one still run, as they
+     * would in sequential mode.
+     *
+     * @param extraSessions Additional workers, each on its own connection
+     * @return Number of scripts applied
+     * @throws Exception if a migration fails and the strategy says stop
+     */
+    public int migrateParallel(Connection connection, FailureStrategy strategy,
+                               List<MigrationSession> extraSessions) throws Exception {
+
+        System.out.println("Loading migration scripts...");
+        List<MigrationScript> scripts = loader.loadScripts();
+
+        AppliedVersionIndex history = repository.getAppliedVersions();
+        AppliedVersionIndex.Diff diff = history.diff(scripts);
+        reportDiff(diff);
+        if (report != null) {
+            report.addPending(diff.pending().size());
+        }
+
+        loader.preload(diff.pending());
+
+        Set<String> localVersions = scripts.stream()
+                .map(MigrationScript::getVersion)
+                .collect(Collectors.toSet());
+        MigrationGraph graph = MigrationGraph.build(diff.pending(), history, localVersions);
+
+        List<MigrationSession> sessions = new ArrayList<>();
+        sessions.add(new MigrationSession(connection, executor, repository));
+        sessions.addAll(extraSessions);
+
+        int applied = runGraph(graph, sessions, strategy);
+
+        System.out.println("All pending migrations applied.");
+        return applied;
+    }
+
+    /**
+     * Runs the graph with one task per idle session. Scheduling state is
+     * only touched by the calling thread; workers just execute scripts.
+     * Among ready scripts the lowest version starts first.
+     */
+    private int runGraph(MigrationGraph graph, List<MigrationSession> sessions, FailureStrategy strategy)
+            throws Exception {
+
+        int[] waiting = graph.dependencyCounts();
+        PriorityQueue<Integer> ready = new PriorityQueue<>();
+        for (int i = 0; i < graph.size(); i++) {
+            if (waiting[i] == 0) {
+                ready.add(i);
+            }
+        }
+
+        Deque<MigrationSession> idle = new ArrayDeque<>(sessions);
+        int running = 0;
+        int finished = 0;
+        int applied = 0;
+        Exception error = null;
+
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletionService<Completed> completions = new ExecutorCompletionService<>(threads);
+
+            while (true) {
+                while (error == null && !ready.isEmpty() && !idle.isEmpty()) {
+                    int index = ready.poll();
+                    MigrationSession session = idle.poll();
+                    MigrationScript script = graph.script(index);
+
+                    completions.submit(() -> new Completed(index, session,
+                            session.executor().executeTransactional(
+                                    session.connection(), script, MAX_RETRIES, session.repository())));
+                    running++;
+                }
+
+                if (running == 0) {
+                    break;
+                }
+
+                Completed done = completions.take().get();
+                running--;
+                finished++;
+                idle.push(done.session());
+                record(done.result());
+
+                if (done.result().isSuccess()) {
+                    applied++;
+                }
+                if (!strategy.shouldContinue(done.result())) {
+                    if (error == null) {
+                        error = done.result().getError();
+                    }
+                    continue;
+                }
+
+                for (int dependent : graph.dependents(done.index())) {
+                    if (--waiting[dependent] == 0) {
+                        ready.add(dependent);
+                    }
+                }
+            }
+        }
+
+        if (error != null) {
+            System.out.println("Stopped after a failure; " + (graph.size() - finished) + " script(s) not started");
+            throw error;
+        }
+        return applied;
+    }
+
+    /**
+     * Prints the timing of a finished script and adds it to the report.
+     */
+    private void record(MigrationResult result) {
+        ScriptMetrics metrics = result.getMetrics();
+        if (metrics != null) {
+            System.out.println((result.isSuccess() ? "Applied" : "Failed") + " version " + metrics.getVersion()
+                    + " in " + metrics.getExecutionMillis() + " ms (" + metrics.getRowsAffected() + " rows, "
+                    + metrics.getStatements() + " statements"
+                    + (metrics.getAttempts() > 1 ? ", " + metrics.getAttempts() + " attempts" : "") + ")");
+        }
+        if (report != null) {
+            report.add(reportSchema, result);
+        }
+    }
+
+    private record Completed(int index, MigrationSession session, MigrationResult result) {
+    }
+
+    /**
+     * Warns about history that does not line up with the local scripts.
+     * Neither case stops the run.
+     */
+    private void reportDiff(AppliedVersionIndex.Diff diff) {
+        for (MigrationScript script : diff.outOfOrder()) {
+            System.out.println("WARNING: Version " + script.getVersion() +
+                    " is older than the latest applied version and will be applied out of order");
+        }
+
+        if (diff.missingLocally() > 0) {
+            String more = diff.missingLocally() > diff.missingSample().size() ? ", ..." : "";
+            System.out.println("WARNING: " + diff.missingLocally() +
+                    " applied version(s) have no local script: " +
+                    String.join(", ", diff.missingSample()) + more);
+        }
     }
 
 }
@@ -0,0 +1,22 @@
+package com.migrator.core.db.impl;
+
+import com.migrator.core.db.DbVersionRepository;
+import com.migrator.core.db.ScriptExecutor;
+
+import java.sql.Connection;
+
+/**
+ * One connection with the components bound to it. Parallel runs use
+ * one session per worker, so every script and its history row commit
+ * on the worker's own connection.
+ *
+ * @param connection JDBC connection of the worker
+ * @param executor   Executor bound to the connection
+ * @param repository Repository bound to the connection
+ */
+public record MigrationSession(
+        Connection connection,
+        ScriptExecutor executor,
+        DbVersionRepository repository
+) {
+}
@@ -0,0 +1,121 @@
+package com.migrator.core.db.impl;
+
+import com.migrator.core.db.DbVersionRepository;
+import com.migrator.model.MigrationScript;
+import com.migrator.util.ChecksumOptions;
+import com.migrator.util.VersionOrder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that applied migrations still match the local scripts.
+ *
+ * Reports:
+ * --------
+ * - mismatches: the file changed after it was applied
+ * - missing files: applied versions with no local script
+ * - unknown versions: local scripts the database has no record of
+ *
+ * Mismatches and missing files fail the validation. Unknown versions
+ * are only listed, since they are usually migrations not applied yet.
+ *
+ * The whole history is read with one streamed query and matched
+ * against the loader index; only scripts that were applied are
+ * hashed, in parallel, and cached checksums are reused when the
+ * loader manifest is enabled. No per-script queries are issued.
+ *
+ * Each file is hashed with the options its checksum was recorded with
+ * (see {@link ChecksumOptions}), so changing --checksum.algorithm does
+ * not turn every applied version into a mismatch.
+ */
+public class MigrationValidator {
+
+    private final ScriptLoader loader;
+    private final DbVersionRepository repository;
+
+    public MigrationValidator(ScriptLoader loader, DbVersionRepository repository) {
+        this.loader = loader;
+        this.repository = repository;
+    }
+
+    /**
+     * Runs the validation and prints a report.
+     *
+     * @throws IllegalStateException when a mismatch or missing file is found
+     * @throws Exception             when scripts or history cannot be read
+     */
+    public void validate() throws Exception {
+
+        System.out.println("Indexing migration scripts...");
+        Map<String, MigrationScript> local = new HashMap<>();
+        for (MigrationScript script : loader.indexScripts()) {
+            local.put(script.getVersion(), script);
+        }
+
+        // 1. Stream history once, pairing each row with its local script
+        List<MigrationScript> applied = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        int[] unchecked = new int[1];
+
+        repository.forEachAppliedChecksum((version, checksum) -> {
+            MigrationScript script = local.remove(version);
+            if (script == null) {
+                missing.add(version);
+            } else if (checksum == null) {
+                unchecked[0]++;
+            } else {
+                applied.add(script);
+                expected.add(checksum);
+            }
+        });
+
+        // 2. Hash the applied scripts recorded with the current options concurrently
+        List<ChecksumOptions> recorded = expected.stream().map(ChecksumOptions::of).toList();
+        List<MigrationScript> current = new ArrayList<>();
+        for (int i = 0; i < applied.size(); i++) {
+            if (recorded.get(i).equals(applied.get(i).getChecksumOptions())) {
+                current.add(applied.get(i));
+            }
+        }
+        loader.preload(current);
+
+        // 3. Compare, hashing the others with their recorded options
+        List<String> mismatches = new ArrayList<>();
+        for (int i = 0; i < applied.size(); i++) {
+            MigrationScript script = applied.get(i);
+            String found = script.getChecksum(recorded.get(i));
+            if (!found.equalsIgnoreCase(expected.get(i))) {
+                mismatches.add(script.getVersion() + " (" + script.getDescription() + ")"
+                        + ": expected " + expected.get(i) + ", found " + found);
+            }
+        }
+
+        List<String> unknown = local.keySet().stream().sorted(VersionOrder.COMPARATOR).toList();
+
+        print("Checksum mismatch", mismatches);
+        print("Missing file for applied version", missing);
+        print("Not applied", unknown);
+
+        System.out.println("Validated " + applied.size() + " applied migration(s): "
+                + mismatches.size() + " mismatched, "
+                + missing.size() + " missing, "
+                + unknown.size() + " not applied"
+                + (unchecked[0] > 0 ? ", " + unchecked[0] + " without recorded checksum" : ""));
+
+        if (!mismatches.isEmpty() || !missing.isEmpty()) {
+            throw new IllegalStateException("Validation failed: "
+                    + mismatches.size() + " checksum mismatch(es), "
+                    + missing.size() + " missing file(s)");
+        }
+    }
+
+    private static void print(String label, List<String> entries) {
+        for (String entry : entries) {
+            System.out.println(label + ": " + entry);
+        }
+    }
+}
@@ -1,55 +1,312 @@
 package com.migrator.core.db.impl;
 
+import com.migrator.core.events.ScriptHashEvent;
+import com.migrator.core.events.ScriptLoadEvent;
 import com.migrator.model.MigrationScript;
 import com.migrator.model.MigrationStatus;
-import com.migrator.util.ChecksumUtil;
+import com.migrator.util.ChecksumOptions;
+import com.migrator.util.VersionOrder;
+
+import java.io.ByteArrayInputStream;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Responsible for loading SQL migration scripts from the filesystem.
  *
  * This class:
- * - Reads all .sql files inside the migrations directory
+ * - Reads all .sql (and .load) files inside the migrations directory
  * - Parses version and description from the filename
  * - Reads file content and computes checksum
  * - Creates MigrationScript objects
- * - Returns them sorted by version (ascending)
+ * - Returns them sorted by version (ascending, see {@link VersionOrder})
+ *
+ * In lazy mode only a lightweight index (version, description,
+ * path, size) is built. Content and checksum are read on demand,
+ * so already-applied scripts never touch the disk beyond a
+ * directory listing.
+ *
+ * Reading and hashing run on a dedicated fork-join pool with the
+ * configured parallelism. The result is always sorted by version,
+ * so it does not depend on thread scheduling.
+ *
+ * With the manifest enabled, checksums of unchanged files are taken
+ * from a local {@link ScriptManifest} and only new or modified files
+ * are hashed.
+ *
+ * Bulk-load migrations are a .load descriptor plus a .csv or .tsv
+ * data file with the same name (see {@link com.migrator.model.BulkLoadSpec}).
  *
  * Expected filename format:
  *   YYYYMMDDHHMM__description.sql
+ *   YYYYMMDDHHMM__description.load  (+ .csv or .tsv)
  *
  * Example:
  *   202501121210__create_user_table.sql
  */
 public class ScriptLoader {
 
+    /** Extension of bulk-load descriptors */
+    private static final String BULK_LOAD_EXTENSION = ".load";
+
     /** Path to the migrations directory */
     private final Path migrationDir;
 
+    /** When true, scripts are returned as an index and loaded on demand */
+    private final boolean lazy;
+
+    /** Number of worker threads used to read and hash files */
+    private final int parallelism;
+
+    /** When true, checksums are cached in a manifest next to the scripts */
+    private final boolean useManifest;
+
+    /** Algorithm and normalization used for checksums */
+    private final ChecksumOptions checksumOptions;
+
+    /** Checksum cache, read on first use (null when disabled) */
+    private ScriptManifest manifest;
+
+    /** Filenames seen by the last directory listing */
+    private volatile Set<String> listedFiles = Set.of();
+
     /**
      * @param directory Path to the folder containing .sql migration files
      */
     public ScriptLoader(String directory) {
+        this(directory, false);
+    }
+
+    /**
+     * @param directory Path to the folder containing .sql migration files
+     * @param lazy      Build a metadata-only index instead of reading every file
+     */
+    public ScriptLoader(String directory, boolean lazy) {
+        this(directory, lazy, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param directory   Path to the folder containing .sql migration files
+     * @param lazy        Build a metadata-only index instead of reading every file
+     * @param parallelism Number of threads used to read and hash files
+     */
+    public ScriptLoader(String directory, boolean lazy, int parallelism) {
+        this(directory, lazy, parallelism, false);
+    }
+
+    /**
+     * @param directory   Path to the folder containing .sql migration files
+     * @param lazy        Build a metadata-only index instead of reading every file
+     * @param parallelism Number of threads used to read and hash files
+     * @param useManifest Cache checksums of unchanged files in {@value ScriptManifest#FILE_NAME}
+     */
+    public ScriptLoader(String directory, boolean lazy, int parallelism, boolean useManifest) {
+        this(directory, lazy, parallelism, useManifest, ChecksumOptions.DEFAULT);
+    }
+
+    /**
+     * @param directory       Path to the folder containing .sql migration files
+     * @param lazy            Build a metadata-only index instead of reading every file
+     * @param parallelism     Number of threads used to read and hash files
+     * @param useManifest     Cache checksums of unchanged files in {@value ScriptManifest#FILE_NAME}
+     * @param checksumOptions Algorithm and normalization used for checksums
+     */
+    public ScriptLoader(String directory, boolean lazy, int parallelism, boolean useManifest,
+                        ChecksumOptions checksumOptions) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Loader parallelism must be at least 1, got " + parallelism);
+        }
         this.migrationDir = Paths.get(directory);
+        this.lazy = lazy;
+        this.parallelism = parallelism;
+        this.useManifest = useManifest;
+        this.checksumOptions = checksumOptions;
     }
 
     /**
      * Loads all migration scripts from the directory.
+     * In lazy mode this is the same as {@link #indexScripts()}.
      *
      * @return List of MigrationScript objects sorted by version
      * @throws IOException when file access fails
      */
     public List<MigrationScript> loadScripts() throws IOException {
+        if (lazy) {
+            return indexScripts();
+        }
+
+        ScriptLoadEvent event = new ScriptLoadEvent();
+        event.begin();
+
+        List<Path> files = listMigrationFiles();
+
+        // Read and hash every file concurrently, then order by version
+        List<MigrationScript> scripts = runParallel(() -> files.parallelStream()
+                .map(this::parseFile)
+                .sorted(Comparator.comparing(MigrationScript::getVersion, VersionOrder.COMPARATOR))
+                .toList());
+
+        saveManifest();
 
-        // List all files in directory, filter only .sql files
-        return Files.list(migrationDir)
-                .filter(path -> path.toString().endsWith(".sql"))
-                .map(this::parseFile)                   // Convert each file to a MigrationScript
-                .sorted(Comparator.comparing(MigrationScript::getVersion)) // Order by version
+        event.end();
+        commitLoadEvent(event, scripts, true);
+        return scripts;
+    }
+
+    /**
+     * Builds a metadata-only index of the migration directory.
+     * No file content is read; only names and sizes.
+     *
+     * @return List of index-only MigrationScript objects sorted by version
+     * @throws IOException when the directory cannot be listed
+     */
+    public List<MigrationScript> indexScripts() throws IOException {
+        ScriptLoadEvent event = new ScriptLoadEvent();
+        event.begin();
+
+        List<Path> files = listMigrationFiles();
+
+        List<MigrationScript> scripts = runParallel(() -> files.parallelStream()
+                .map(this::indexFile)
+                .sorted(Comparator.comparing(MigrationScript::getVersion, VersionOrder.COMPARATOR))
+                .toList());
+
+        event.end();
+        commitLoadEvent(event, scripts, false);
+        return scripts;
+    }
+
+    private void commitLoadEvent(ScriptLoadEvent event, List<MigrationScript> scripts, boolean eager) {
+        if (event.shouldCommit()) {
+            event.directory = migrationDir.toString();
+            event.scripts = scripts.size();
+            event.bytes = scripts.stream().mapToLong(MigrationScript::getSize).sum();
+            event.eager = eager;
+            event.commit();
+        }
+    }
+
+    /**
+     * Computes checksums of the given scripts concurrently, so later
+     * calls to {@link MigrationScript#getChecksum()} return immediately.
+     *
+     * @param scripts Scripts to hash (typically the pending ones)
+     * @throws IOException when a file cannot be read
+     */
+    public void preload(Collection<MigrationScript> scripts) throws IOException {
+        List<MigrationScript> unhashed = scripts.stream()
+                .filter(script -> !script.isChecksumLoaded())
                 .toList();
+        if (unhashed.isEmpty()) {
+            return;
+        }
+
+        runParallel(() -> {
+            unhashed.parallelStream().forEach(this::hash);
+            return null;
+        });
+
+        saveManifest();
+    }
+
+    /**
+     * Lists all .sql and .load files and validates their names.
+     * Every problem is reported at once instead of failing on the first.
+     */
+    private List<Path> listMigrationFiles() throws IOException {
+        List<Path> all;
+        try (Stream<Path> stream = Files.list(migrationDir)) {
+            all = stream.toList();
+        }
+
+        listedFiles = all.stream()
+                .map(path -> path.getFileName().toString())
+                .collect(Collectors.toUnmodifiableSet());
+
+        List<Path> files = all.stream()
+                .filter(ScriptLoader::isMigrationFile)
+                .toList();
+
+        List<String> invalid = new ArrayList<>();
+        for (Path path : files) {
+            String fileName = path.getFileName().toString();
+            if (fileName.split("__").length != 2) {
+                invalid.add(fileName);
+            } else if (fileName.endsWith(BULK_LOAD_EXTENSION) && dataFileOf(path) == null) {
+                invalid.add(fileName + " (needs exactly one matching .csv or .tsv data file)");
+            }
+        }
+        Collections.sort(invalid);
+
+        if (!invalid.isEmpty()) {
+            throw new IllegalArgumentException(
+                    invalid.size() + " invalid migration filename(s)"
+                            + " (expected format: YYYYMMDDHHMM__description.sql or .load):\n  "
+                            + String.join("\n  ", invalid));
+        }
+
+        return files;
+    }
+
+    private static boolean isMigrationFile(Path path) {
+        String name = path.toString();
+        return name.endsWith(".sql") || name.endsWith(BULK_LOAD_EXTENSION);
+    }
+
+    /**
+     * Finds the data file of a bulk-load descriptor: same name with
+     * a .csv or .tsv extension.
+     *
+     * @return Data file, or null when there is none or both exist
+     */
+    private Path dataFileOf(Path descriptor) {
+        String fileName = descriptor.getFileName().toString();
+        String base = fileName.substring(0, fileName.length() - BULK_LOAD_EXTENSION.length());
+
+        boolean csv = listedFiles.contains(base + ".csv");
+        boolean tsv = listedFiles.contains(base + ".tsv");
+        if (csv == tsv) {
+            return null;
+        }
+        return descriptor.resolveSibling(base + (csv ? ".csv" : ".tsv"));
+    }
+
+    /**
+     * Runs the given task on a fork-join pool sized to the configured
+     * parallelism, so parallel streams inside it use that pool.
+     */
+    private <T> T runParallel(Callable<T> task) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(task).get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading migration scripts", e);
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("Failed to load migration scripts", cause);
+
+        } finally {
+            pool.shutdown();
+        }
     }
 
     /**
@@ -60,30 +317,153 @@ public class ScriptLoader {
      * @return Parsed MigrationScript instance
      */
     private MigrationScript parseFile(Path path) {
+        // Bulk-load data is streamed at execution time, never held in memory
+        if (path.toString().endsWith(BULK_LOAD_EXTENSION)) {
+            return indexFile(path);
+        }
+
         try {
-            String fileName = path.getFileName().toString();
+            ScriptHashEvent event = new ScriptHashEvent();
+            event.begin();
 
-            // Split into version + description
-            String[] parts = fileName.split("__");
-            if (parts.length != 2 || !fileName.endsWith(".sql")) {
-                throw new IllegalArgumentException(
-                        "Invalid migration filename: " + fileName +
-                                " (expected format: YYYYMMDDHHMM__description.sql)");
-            }
+            String[] name = parseFileName(path);
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            String cached = manifest() != null ? manifest().lookup(path, attrs) : null;
 
-            String version = parts[0];
-            String description = parts[1].replace(".sql", "");
+            // Read file content once; hash the raw bytes
+            byte[] bytes = Files.readAllBytes(path);
+            String content = new String(bytes, StandardCharsets.UTF_8);
 
-            // Read file content
-            String content = Files.readString(path);
+            // Compute checksum unless the manifest already knows it
+            String checksum = cached;
+            if (checksum == null) {
+                checksum = checksumOptions.checksum(new ByteArrayInputStream(bytes));
+                if (manifest() != null) {
+                    manifest().record(path, attrs, checksum);
+                }
+            }
 
-            // Compute checksum
-            String checksum = ChecksumUtil.generateChecksum(content);
+            event.end();
+            if (event.shouldCommit()) {
+                event.version = name[0];
+                event.bytes = bytes.length;
+                event.cached = cached != null;
+                event.commit();
+            }
 
-            return new MigrationScript(version, description, content, checksum, MigrationStatus.PENDING);
+            return new MigrationScript(name[0], name[1], content, checksum, MigrationStatus.PENDING);
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to parse migration file: " + path, e);
         }
     }
+
+    /**
+     * Creates an index entry for a migration file without reading it.
+     *
+     * @param path File path to index
+     * @return Index-only MigrationScript instance
+     */
+    private MigrationScript indexFile(Path path) {
+        try {
+            String[] name = parseFileName(path);
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            String cached = manifest() != null ? manifest().lookup(path, attrs) : null;
+
+            if (path.toString().endsWith(BULK_LOAD_EXTENSION)) {
+                Path dataFile = dataFileOf(path);
+                BasicFileAttributes dataAttrs = Files.readAttributes(dataFile, BasicFileAttributes.class);
+
+                // The cached checksum covers both files, so both must be unchanged
+                if (cached != null && manifest().lookup(dataFile, dataAttrs) == null) {
+                    cached = null;
+                }
+
+                return new MigrationScript(name[0], name[1], path, dataFile, attrs.size() + dataAttrs.size(),
+                        cached, checksumOptions, MigrationStatus.PENDING);
+            }
+
+            return new MigrationScript(name[0], name[1], path, attrs.size(), cached,
+                    checksumOptions, MigrationStatus.PENDING);
+
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to index migration file: " + path, e);
+        }
+    }
+
+    /**
+     * Computes the checksum of an indexed script and records it in the manifest.
+     * Attributes are read before hashing, so an edit during hashing is
+     * detected on the next run.
+     */
+    private void hash(MigrationScript script) {
+        ScriptHashEvent event = new ScriptHashEvent();
+        event.begin();
+        try {
+            Path path = script.getSource();
+            Path dataFile = script.getDataFile();
+            boolean cache = path != null && manifest() != null;
+
+            BasicFileAttributes attrs = cache ? Files.readAttributes(path, BasicFileAttributes.class) : null;
+            BasicFileAttributes dataAttrs = cache && dataFile != null
+                    ? Files.readAttributes(dataFile, BasicFileAttributes.class)
+                    : null;
+
+            String checksum = script.getChecksum();
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.version = script.getVersion();
+                event.bytes = script.getSize();
+                event.commit();
+            }
+
+            if (attrs != null) {
+                manifest().record(path, attrs, checksum);
+            }
+            if (dataAttrs != null) {
+                // Tracked only to detect changes; the checksum lives on the descriptor
+                manifest().record(dataFile, dataAttrs, "-");
+            }
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return Checksum manifest of the migrations directory, or null when disabled
+     */
+    private synchronized ScriptManifest manifest() {
+        if (useManifest && manifest == null) {
+            manifest = ScriptManifest.load(migrationDir, checksumOptions.id());
+        }
+        return manifest;
+    }
+
+    private void saveManifest() {
+        if (manifest() != null) {
+            manifest().save(listedFiles);
+        }
+    }
+
+    /**
+     * Splits a filename into version and description.
+     *
+     * @return two-element array: version, description
+     */
+    private String[] parseFileName(Path path) {
+        String fileName = path.getFileName().toString();
+
+        // Split into version + description
+        String[] parts = fileName.split("__");
+        if (parts.length != 2 || !isMigrationFile(path)) {
+            throw new IllegalArgumentException(
+                    "Invalid migration filename: " + fileName +
+                            " (expected format: YYYYMMDDHHMM__description.sql or .load)");
+        }
+
+        String description = parts[1].substring(0, parts[1].lastIndexOf('.'));
+        return new String[] { parts[0], description };
+    }
 }
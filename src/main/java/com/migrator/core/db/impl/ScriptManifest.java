@@ -0,0 +1,223 @@
+package com.migrator.core.db.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Local on-disk cache of migration file checksums.
+ *
+ * Each entry is keyed by filename and stores the file size, the
+ * last-modified time, a cheap content fingerprint and the checksum.
+ * A file whose size, mtime and fingerprint still match is served
+ * from the cache and never hashed again.
+ *
+ * The fingerprint is a CRC32C of the first and last 4 KiB of the
+ * file. It catches edits that keep size and mtime intact (e.g. a
+ * checkout that restores timestamps) without reading the whole file.
+ *
+ * File format (tab separated, one file per line):
+ *   # migrator-index v2 <checksum options, e.g. sha256>
+ *   fileName  size  mtimeMillis  fingerprint  checksum
+ *
+ * The manifest is only an optimization: a missing, unreadable or
+ * corrupt file simply results in a cold rebuild.
+ */
+public class ScriptManifest {
+
+    /** Default manifest filename, stored inside the migrations directory */
+    public static final String FILE_NAME = ".migrator-index";
+
+    private static final String HEADER = "# migrator-index v2 ";
+
+    /** Number of bytes read from each end of a file for the fingerprint */
+    private static final int FINGERPRINT_BLOCK = 4096;
+
+    private final Path file;
+
+    /** First line of the file; identifies format and checksum options */
+    private final String header;
+
+    /** Entries read from disk at startup */
+    private final Map<String, Entry> previous;
+
+    /** Entries confirmed or computed during this run */
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    private ScriptManifest(Path file, String header, Map<String, Entry> previous) {
+        this.file = file;
+        this.header = header;
+        this.previous = previous;
+    }
+
+    /**
+     * Reads the manifest stored in the given migrations directory.
+     * Returns an empty manifest when there is none, it cannot be parsed
+     * or it was written with different checksum options.
+     *
+     * @param migrationDir    Directory containing the migration files
+     * @param checksumOptions Identifier of the checksum options in use
+     */
+    public static ScriptManifest load(Path migrationDir, String checksumOptions) {
+        Path file = migrationDir.resolve(FILE_NAME);
+        String header = HEADER + checksumOptions;
+        Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+        if (!Files.isRegularFile(file)) {
+            return new ScriptManifest(file, header, entries);
+        }
+
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !header.equals(lines.get(0))) {
+                System.out.println("Rebuilding script manifest (format or checksum options changed): " + file);
+                return new ScriptManifest(file, header, entries);
+            }
+
+            for (String line : lines.subList(1, lines.size())) {
+                String[] parts = line.split("\t");
+                if (parts.length != 5) {
+                    continue;
+                }
+                entries.put(parts[0], new Entry(
+                        Long.parseLong(parts[1]),
+                        Long.parseLong(parts[2]),
+                        Long.parseLong(parts[3], 16),
+                        parts[4]
+                ));
+            }
+
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Ignoring unreadable script manifest " + file + ": " + e.getMessage());
+            entries.clear();
+        }
+
+        return new ScriptManifest(file, header, entries);
+    }
+
+    /**
+     * Returns the cached checksum for the file if it is unchanged.
+     *
+     * @param path  Migration file
+     * @param attrs Attributes read just before the lookup
+     * @return Cached checksum, or null when the file is new or modified
+     */
+    public String lookup(Path path, BasicFileAttributes attrs) throws IOException {
+        String name = path.getFileName().toString();
+        Entry entry = previous.get(name);
+
+        if (entry == null
+                || entry.size() != attrs.size()
+                || entry.modifiedMillis() != attrs.lastModifiedTime().toMillis()) {
+            return null;
+        }
+
+        if (entry.fingerprint() != fingerprint(path, attrs.size())) {
+            return null;
+        }
+
+        current.put(name, entry);
+        return entry.checksum();
+    }
+
+    /**
+     * Records a freshly computed checksum.
+     *
+     * @param path     Migration file
+     * @param attrs    Attributes read before the file was hashed
+     * @param checksum Checksum of the file content
+     */
+    public void record(Path path, BasicFileAttributes attrs, String checksum) throws IOException {
+        current.put(path.getFileName().toString(), new Entry(
+                attrs.size(),
+                attrs.lastModifiedTime().toMillis(),
+                fingerprint(path, attrs.size()),
+                checksum
+        ));
+    }
+
+    /**
+     * Writes the manifest back to disk if anything changed.
+     * Entries of files that still exist but were not hashed in this run
+     * are kept, so a lazy run does not forget checksums it did not need.
+     * Entries of deleted files are dropped.
+     *
+     * The file is written to a temporary sibling and atomically moved
+     * into place, so a concurrent reader never sees a partial manifest.
+     *
+     * @param existingFiles Names of the migration files currently on disk
+     */
+    public void save(Set<String> existingFiles) {
+        Map<String, Entry> merged = new TreeMap<>(previous);
+        merged.putAll(current);
+        merged.keySet().retainAll(existingFiles);
+
+        if (merged.equals(new TreeMap<>(previous))) {
+            return;
+        }
+
+        try {
+            Path tmp = Files.createTempFile(file.getParent(), FILE_NAME, ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(header);
+                writer.newLine();
+                for (Map.Entry<String, Entry> e : merged.entrySet()) {
+                    Entry entry = e.getValue();
+                    writer.write(e.getKey() + "\t" + entry.size() + "\t" + entry.modifiedMillis()
+                            + "\t" + Long.toHexString(entry.fingerprint()) + "\t" + entry.checksum());
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException e) {
+            // Read-only checkouts must still be able to migrate
+            System.out.println("Could not write script manifest " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Computes a CRC32C over the first and last block of the file.
+     */
+    private static long fingerprint(Path path, long size) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(FINGERPRINT_BLOCK);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            readBlock(channel, buffer, 0);
+            crc.update(buffer);
+
+            if (size > FINGERPRINT_BLOCK) {
+                buffer.clear();
+                readBlock(channel, buffer, Math.max(FINGERPRINT_BLOCK, size - FINGERPRINT_BLOCK));
+                crc.update(buffer);
+            }
+        }
+
+        return crc.getValue();
+    }
+
+    private static void readBlock(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+    /** Cached state of one migration file */
+    private record Entry(long size, long modifiedMillis, long fingerprint, String checksum) {
+    }
+}
@@ -1,11 +1,15 @@
 package com.migrator.core.db.impl.mssql;
 
 import com.migrator.core.db.DbVersionRepository;
+import com.migrator.core.db.impl.InfrastructureVersion;
+import com.migrator.core.events.HistoryWriteEvent;
+import com.migrator.model.AppliedVersionIndex;
+import com.migrator.model.BackfillProgress;
 import com.migrator.model.MigrationScript;
+import com.migrator.model.ScriptMetrics;
 
 import java.sql.*;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.function.BiConsumer;
 
 
 /**
@@ -15,23 +19,55 @@ public class MssqlDbVersionRepository implements DbVersionRepository {
 
     private final Connection connection;
 
+    /** Extended property holding the infrastructure version */
+    private static final String MARKER_PROPERTY = "migrator_infrastructure";
+
+    /** Rows per round trip when reading the history table */
+    private static final int FETCH_SIZE = 5000;
+
+    /** Cached history INSERT, reused for every migration of the run */
+    private PreparedStatement insertStatement;
+
+    /** Set once the migration tables are known to be up to date */
+    private boolean infrastructureReady;
+
+    /** Only reads: never creates or upgrades the migration tables */
+    private final boolean readOnly;
+
+    /** Infrastructure version found by a read-only repository, null until read */
+    private Integer existingVersion;
+
     public MssqlDbVersionRepository(Connection connection) {
+        this(connection, false);
+    }
+
+    /**
+     * @param readOnly True to only read the history (validate, plan): the
+     *                 migration tables are never created or upgraded, and
+     *                 missing tables read as an empty history
+     */
+    public MssqlDbVersionRepository(Connection connection, boolean readOnly) {
         this.connection = connection;
+        this.readOnly = readOnly;
     }
 
     @Override
-    public Set<String> getAppliedVersions() {
-        Set<String> versions = new HashSet<>();
+    public AppliedVersionIndex getAppliedVersions() {
+        AppliedVersionIndex.Builder versions = AppliedVersionIndex.builder();
 
         try {
-            ensureMigrationInfrastructure();
+            if (readableVersion() == InfrastructureVersion.MISSING) {
+                return versions.build();
+            }
 
+            // Ordered by the unique index on version, streamed in large pages
             try (PreparedStatement stmt = connection.prepareStatement(
-                    "SELECT version FROM schema_migrations"
+                    "SELECT version FROM schema_migrations ORDER BY version"
             )) {
+                stmt.setFetchSize(FETCH_SIZE);
                 ResultSet rs = stmt.executeQuery();
                 while (rs.next()) {
-                    versions.add(rs.getString("version"));
+                    versions.add(rs.getString(1));
                 }
             }
 
@@ -39,23 +75,57 @@ public class MssqlDbVersionRepository implements DbVersionRepository {
             throw new RuntimeException("Failed to fetch applied migrations", e);
         }
 
-        return versions;
+        return versions.build();
+    }
+
+    @Override
+    public void forEachAppliedChecksum(BiConsumer<String, String> action) {
+        try {
+            if (readableVersion() == InfrastructureVersion.MISSING) {
+                return;
+            }
+
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT version, checksum FROM schema_migrations ORDER BY version"
+            )) {
+                stmt.setFetchSize(FETCH_SIZE);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    action.accept(rs.getString(1), rs.getString(2));
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read migration checksums", e);
+        }
     }
 
     @Override
-    public void save(MigrationScript script) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-                """
-                INSERT INTO schema_migrations
-                    (version, description, checksum)
-                VALUES (?, ?, ?)
-                """
-        )) {
+    public void save(MigrationScript script, ScriptMetrics metrics) {
+        requireWritable();
+        HistoryWriteEvent event = new HistoryWriteEvent();
+        event.begin();
+        try {
+            PreparedStatement stmt = insertStatement();
             stmt.setString(1, script.getVersion());
             stmt.setString(2, script.getDescription());
             stmt.setString(3, script.getChecksum());
+            if (metrics != null) {
+                stmt.setLong(4, metrics.getExecutionMillis());
+                stmt.setLong(5, metrics.getRowsAffected());
+            } else {
+                stmt.setNull(4, Types.BIGINT);
+                stmt.setNull(5, Types.BIGINT);
+            }
             stmt.executeUpdate();
 
+            event.end();
+            if (event.shouldCommit()) {
+                event.version = script.getVersion();
+                event.bytes = script.getSize();
+                event.commit();
+            }
+
         } catch (SQLException e) {
             throw new RuntimeException(
                     "Failed to save migration record for version " + script.getVersion(), e
@@ -63,45 +133,265 @@ public class MssqlDbVersionRepository implements DbVersionRepository {
         }
     }
 
+    @Override
+    public void close() {
+        if (insertStatement == null) {
+            return;
+        }
+        try {
+            insertStatement.close();
+        } catch (SQLException ignored) {
+        } finally {
+            insertStatement = null;
+        }
+    }
+
+    @Override
+    public BackfillProgress findBackfill(String version) {
+        try {
+            // schema_migration_backfill was added in infrastructure version 2
+            if (readableVersion() < 2) {
+                return null;
+            }
+
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT range_start, range_end, next_key FROM dbo.schema_migration_backfill WHERE version = ?"
+            )) {
+                stmt.setString(1, version);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next()
+                            ? new BackfillProgress(version, rs.getLong(1), rs.getLong(2), rs.getLong(3))
+                            : null;
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read backfill progress of version " + version, e);
+        }
+    }
+
+    @Override
+    public void saveBackfill(BackfillProgress progress) {
+        requireWritable();
+        try (PreparedStatement stmt = connection.prepareStatement("""
+                UPDATE dbo.schema_migration_backfill
+                SET next_key = ?, updated_at = SYSDATETIME()
+                WHERE version = ?;
+                IF @@ROWCOUNT = 0
+                    INSERT INTO dbo.schema_migration_backfill (version, range_start, range_end, next_key)
+                    VALUES (?, ?, ?, ?);
+                """)) {
+            stmt.setLong(1, progress.nextKey());
+            stmt.setString(2, progress.version());
+            stmt.setString(3, progress.version());
+            stmt.setLong(4, progress.rangeStart());
+            stmt.setLong(5, progress.rangeEnd());
+            stmt.setLong(6, progress.nextKey());
+            stmt.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save backfill progress of version " + progress.version(), e);
+        }
+    }
+
+    /**
+     * @return INSERT into schema_migrations, prepared once and reused
+     */
+    private PreparedStatement insertStatement() throws SQLException {
+        if (insertStatement == null || insertStatement.isClosed()) {
+            insertStatement = connection.prepareStatement("""
+                    INSERT INTO schema_migrations
+                        (version, description, checksum, execution_ms, rows_affected)
+                    VALUES (?, ?, ?, ?, ?)
+                    """);
+        }
+        return insertStatement;
+    }
+
     /**
-     * Creates schema_migrations table if it does not exist (MSSQL compatible).
+     * Makes sure the migration tables exist and are up to date (MSSQL compatible).
+     * The fast path is a single catalog query; DDL only runs when the
+     * tables are missing or were created by an older release.
      */
     private void ensureMigrationInfrastructure() throws SQLException {
+        if (infrastructureReady) {
+            return;
+        }
 
-        String sql = """
-        /* 1. schema_migrations table */
-        IF OBJECT_ID('dbo.schema_migrations', 'U') IS NULL
-        BEGIN
-            CREATE TABLE dbo.schema_migrations (
-                id INT IDENTITY(1,1) PRIMARY KEY,
-                version NVARCHAR(50) NOT NULL UNIQUE,
-                description NVARCHAR(255),
-                applied_at DATETIME2 NOT NULL DEFAULT SYSDATETIME(),
-                checksum NVARCHAR(255)
-            );
-        END;
-
-        /* 2. schema_migration_lock table */
-        IF OBJECT_ID('dbo.schema_migration_lock', 'U') IS NULL
-        BEGIN
-            CREATE TABLE dbo.schema_migration_lock (
-                id INT PRIMARY KEY,
-                locked_at DATETIME2
-            );
-        END;
+        int version = readInfrastructureVersion();
+        if (version < InfrastructureVersion.CURRENT) {
+            upgradeInfrastructure(version);
+        }
+        InfrastructureVersion.warnIfNewer(version);
+
+        infrastructureReady = true;
+    }
+
+    /**
+     * Version of the tables about to be read. A read-only repository
+     * only reads the marker and never runs DDL; the others create or
+     * upgrade the tables first.
+     *
+     * @return Infrastructure version, or InfrastructureVersion.MISSING when
+     *         a read-only repository finds no tables
+     */
+    private int readableVersion() throws SQLException {
+        if (!readOnly) {
+            ensureMigrationInfrastructure();
+            return InfrastructureVersion.CURRENT;
+        }
+        if (existingVersion == null) {
+            existingVersion = historyTableExists() ? readInfrastructureVersion() : InfrastructureVersion.MISSING;
+            InfrastructureVersion.reportReadOnly(existingVersion);
+        }
+        return existingVersion;
+    }
+
+    private void requireWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("Migration history was opened read-only");
+        }
+    }
+
+    /**
+     * @return True when dbo.schema_migrations exists
+     */
+    private boolean historyTableExists() throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT OBJECT_ID('dbo.schema_migrations', 'U')"
+        );
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() && rs.getObject(1) != null;
+        }
+    }
+
+    /**
+     * Reads the version marker from the extended property of dbo.schema_migrations.
+     *
+     * @return Infrastructure version, or 0 when the table is missing or unmarked
+     */
+    private int readInfrastructureVersion() throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("""
+                SELECT CAST(value AS NVARCHAR(100))
+                FROM sys.extended_properties
+                WHERE class = 1
+                  AND major_id = OBJECT_ID('dbo.schema_migrations')
+                  AND minor_id = 0
+                  AND name = N'%s'
+                """.formatted(MARKER_PROPERTY));
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? InfrastructureVersion.parse(rs.getString(1)) : 0;
+        }
+    }
+
+    /**
+     * Applies every upgrade step above the given version, then stamps
+     * the new version. All steps are idempotent.
+     */
+    private void upgradeInfrastructure(int from) throws SQLException {
+
+        if (from < 1) {
+            String sql = """
+            /* 1. schema_migrations table */
+            IF OBJECT_ID('dbo.schema_migrations', 'U') IS NULL
+            BEGIN
+                CREATE TABLE dbo.schema_migrations (
+                    id INT IDENTITY(1,1) PRIMARY KEY,
+                    version NVARCHAR(50) NOT NULL UNIQUE,
+                    description NVARCHAR(255),
+                    applied_at DATETIME2 NOT NULL DEFAULT SYSDATETIME(),
+                    checksum NVARCHAR(255)
+                );
+            END;
+
+            /* 2. schema_migration_lock table */
+            IF OBJECT_ID('dbo.schema_migration_lock', 'U') IS NULL
+            BEGIN
+                CREATE TABLE dbo.schema_migration_lock (
+                    id INT PRIMARY KEY,
+                    locked_at DATETIME2
+                );
+            END;
+
+            /* 3. ensure single lock row */
+            IF NOT EXISTS (
+                SELECT 1 FROM dbo.schema_migration_lock WHERE id = 1
+            )
+            BEGIN
+                INSERT INTO dbo.schema_migration_lock (id, locked_at)
+                VALUES (1, SYSDATETIME());
+            END;
+            """;
+
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute(sql);
+            }
+        }
+
+        if (from < 2) {
+            String sql = """
+            /* 4. backfill progress table */
+            IF OBJECT_ID('dbo.schema_migration_backfill', 'U') IS NULL
+            BEGIN
+                CREATE TABLE dbo.schema_migration_backfill (
+                    version NVARCHAR(50) PRIMARY KEY,
+                    range_start BIGINT NOT NULL,
+                    range_end BIGINT NOT NULL,
+                    next_key BIGINT NOT NULL,
+                    updated_at DATETIME2 NOT NULL DEFAULT SYSDATETIME()
+                );
+            END;
+            """;
+
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute(sql);
+            }
+        }
+
+        if (from < 3) {
+            String sql = """
+            /* 5. execution statistics */
+            IF COL_LENGTH('dbo.schema_migrations', 'execution_ms') IS NULL
+                ALTER TABLE dbo.schema_migrations ADD execution_ms BIGINT NULL;
+            IF COL_LENGTH('dbo.schema_migrations', 'rows_affected') IS NULL
+                ALTER TABLE dbo.schema_migrations ADD rows_affected BIGINT NULL;
+            """;
+
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute(sql);
+            }
+        }
+
+        if (from < 4) {
+            String sql = """
+            /* 6. completion counter read by following processes */
+            IF COL_LENGTH('dbo.schema_migration_lock', 'completions') IS NULL
+                ALTER TABLE dbo.schema_migration_lock ADD completions BIGINT NOT NULL DEFAULT 0;
+            """;
+
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute(sql);
+            }
+        }
 
-        /* 3. ensure single lock row */
-        IF NOT EXISTS (
-            SELECT 1 FROM dbo.schema_migration_lock WHERE id = 1
+        String marker = InfrastructureVersion.marker(InfrastructureVersion.CURRENT);
+        String stamp = """
+        IF EXISTS (
+            SELECT 1 FROM sys.extended_properties
+            WHERE class = 1 AND major_id = OBJECT_ID('dbo.schema_migrations')
+              AND minor_id = 0 AND name = N'%1$s'
         )
-        BEGIN
-            INSERT INTO dbo.schema_migration_lock (id, locked_at)
-            VALUES (1, SYSDATETIME());
-        END;
-        """;
+            EXEC sys.sp_updateextendedproperty @name = N'%1$s', @value = N'%2$s',
+                @level0type = N'SCHEMA', @level0name = N'dbo',
+                @level1type = N'TABLE', @level1name = N'schema_migrations';
+        ELSE
+            EXEC sys.sp_addextendedproperty @name = N'%1$s', @value = N'%2$s',
+                @level0type = N'SCHEMA', @level0name = N'dbo',
+                @level1type = N'TABLE', @level1name = N'schema_migrations';
+        """.formatted(MARKER_PROPERTY, marker);
 
         try (Statement stmt = connection.createStatement()) {
-            stmt.execute(sql);
+            stmt.execute(stamp);
         }
     }
 
@@ -1,49 +1,111 @@
 package com.migrator.core.db.impl.mssql;
 
 import com.migrator.core.db.impl.MigrationLock;
+import com.migrator.core.events.LockAcquireEvent;
 
 import java.sql.CallableStatement;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 
 public class MssqlMigrationLock implements MigrationLock {
 
     private final Connection connection;
+    private final long timeoutMillis;
 
     public MssqlMigrationLock(Connection connection) {
+        this(connection, 0);
+    }
+
+    /**
+     * @param connection    Dedicated connection that holds the lock
+     * @param timeoutMillis Maximum wait for the lock (0 = fail fast)
+     */
+    public MssqlMigrationLock(Connection connection, long timeoutMillis) {
         this.connection = connection;
+        this.timeoutMillis = timeoutMillis;
     }
 
     @Override
     public void acquire() throws SQLException {
-        try (CallableStatement stmt = connection.prepareCall(
-                "{? = call sp_getapplock(?, ?, ?, ?)}"
-        )) {
-            stmt.registerOutParameter(1, Types.INTEGER);
-            stmt.setString(2, "schema_migration_lock");
-            stmt.setString(3, "Exclusive");
-            stmt.setString(4, "Transaction");
-            stmt.setInt(5, 0); // timeout (0 = fail fast)
-
-            stmt.execute();
-
-            int result = stmt.getInt(1);
-            if (result < 0) {
+        LockAcquireEvent event = new LockAcquireEvent();
+        event.begin();
+        try {
+            if (getAppLock((int) Math.min(timeoutMillis, Integer.MAX_VALUE)) < 0) {
                 throw new SQLException("Could not acquire migration lock (sp_getapplock)");
             }
+            event.acquired = true;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.databaseType = "mssql";
+                event.commit();
+            }
         }
     }
 
+    @Override
+    public boolean tryAcquire() throws SQLException {
+        return getAppLock(0) >= 0;
+    }
+
     @Override
     public void release() throws SQLException {
         try (CallableStatement stmt = connection.prepareCall(
                 "{call sp_releaseapplock(?, ?)}"
         )) {
             stmt.setString(1, "schema_migration_lock");
-            stmt.setString(2, "Transaction");
+            stmt.setString(2, "Session");
             stmt.execute();
         }
     }
-}
 
+    @Override
+    public void signalCompletion() throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "UPDATE dbo.schema_migration_lock SET completions = completions + 1, locked_at = SYSDATETIME() WHERE id = 1")) {
+            stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public String completionToken() {
+        try {
+            // Table or column not created yet: no run has completed
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT COL_LENGTH('dbo.schema_migration_lock', 'completions')");
+                 ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getObject(1) == null) {
+                    return "0";
+                }
+            }
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT completions FROM dbo.schema_migration_lock WHERE id = 1");
+                 ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? String.valueOf(rs.getLong(1)) : "0";
+            }
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return sp_getapplock result: negative when the lock was not granted
+     */
+    private int getAppLock(int timeout) throws SQLException {
+        try (CallableStatement stmt = connection.prepareCall(
+                "{? = call sp_getapplock(?, ?, ?, ?)}"
+        )) {
+            stmt.registerOutParameter(1, Types.INTEGER);
+            stmt.setString(2, "schema_migration_lock");
+            stmt.setString(3, "Exclusive");
+            stmt.setString(4, "Session");
+            stmt.setInt(5, timeout);
+
+            stmt.execute();
+            return stmt.getInt(1);
+        }
+    }
+}
@@ -1,12 +1,26 @@
 package com.migrator.core.db.impl.mssql;
 
+import com.migrator.core.db.RetryPolicy;
 import com.migrator.core.db.ScriptExecutor;
-import com.migrator.model.MigrationStatus;
+import com.migrator.core.sql.SqlDialect;
+import com.migrator.model.BulkLoadSpec;
 import com.migrator.model.MigrationScript;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCSVFileRecord;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopy;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopyOptions;
+import com.microsoft.sqlserver.jdbc.SQLServerConnection;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * MSSQL-specific script executor.
@@ -17,35 +31,101 @@ public class MssqlScriptExecutor extends ScriptExecutor {
     private final Connection connection;
 
     public MssqlScriptExecutor(Connection connection) {
+        super(RetryPolicy.MSSQL);
         this.connection = connection;
     }
 
-    public void execute(MigrationScript script) throws SQLException {
+    @Override
+    protected SqlDialect dialect() {
+        return SqlDialect.MSSQL;
+    }
+
+    public void execute(MigrationScript script) throws SQLException, IOException {
+        executeStatements(connection, script, SqlDialect.MSSQL);
+    }
 
-        // Split script by MSSQL batch separator "GO"
-        String[] batches = script.getContent()
-                .split("(?im)^\\s*GO\\s*$");
+    /**
+     * Streams the data file with SQLServerBulkCopy. Column types are
+     * taken from the target table so the driver can convert each field.
+     * The copy joins the migration transaction (no internal transaction).
+     * The driver only accepts its own connection class, so pooled
+     * connections are unwrapped first.
+     *
+     * @return -1, as the driver does not report the number of rows
+     */
+    @Override
+    protected long bulkLoad(MigrationScript script) throws Exception {
+        BulkLoadSpec spec = BulkLoadSpec.read(script.getSource(), script.getDataFile());
+        List<String> columns = loadColumns(spec);
+        Map<String, int[]> types = columnTypes(spec.table());
 
-        try (Statement stmt = connection.createStatement()) {
+        try (InputStream in = Files.newInputStream(spec.dataFile());
+             SQLServerBulkCopy bulkCopy = new SQLServerBulkCopy(connection.unwrap(SQLServerConnection.class))) {
 
-            for (String batch : batches) {
+            SQLServerBulkCSVFileRecord record = new SQLServerBulkCSVFileRecord(
+                    in, spec.encoding().name(), String.valueOf(spec.delimiter()), spec.header());
+            record.setEscapeColumnDelimitersCSV(true);
 
-                String sql = batch.trim();
-                if (sql.isEmpty()) {
-                    continue;
+            for (int i = 0; i < columns.size(); i++) {
+                String column = columns.get(i);
+                int[] type = types.get(column.toLowerCase(Locale.ROOT));
+                if (type == null) {
+                    throw new SQLException("Column " + column + " does not exist in table " + spec.table());
                 }
-
-                stmt.execute(sql);
-                script.updateStrategy(MigrationStatus.APPLIED);
+                record.addColumnMetadata(i + 1, column, type[0], type[1], type[2]);
+                bulkCopy.addColumnMapping(i + 1, column);
             }
 
+            SQLServerBulkCopyOptions options = new SQLServerBulkCopyOptions();
+            options.setBulkCopyTimeout(0);
+            bulkCopy.setBulkCopyOptions(options);
+            bulkCopy.setDestinationTableName(spec.table());
+
+            bulkCopy.writeToServer(record);
+
+            // SQLServerBulkCopy does not report a row count
+            return -1;
+
         } catch (SQLException e) {
             throw new SQLException(
-                    "Migration failed while executing version "
+                    "Bulk load failed for version "
                             + script.getVersion()
                             + " (" + script.getDescription() + ")",
+                    e.getSQLState(),
+                    e.getErrorCode(),
                     e
             );
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @return JDBC type, precision and scale per lower-cased column name
+     */
+    private Map<String, int[]> columnTypes(String table) throws SQLException {
+        String schema = null;
+        String name = table;
+        int dot = table.lastIndexOf('.');
+        if (dot > 0) {
+            schema = table.substring(0, dot);
+            name = table.substring(dot + 1);
+        }
+
+        Map<String, int[]> types = new HashMap<>();
+        DatabaseMetaData meta = connection.getMetaData();
+        try (ResultSet rs = meta.getColumns(null, schema, name, null)) {
+            while (rs.next()) {
+                types.put(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT), new int[] {
+                        rs.getInt("DATA_TYPE"),
+                        rs.getInt("COLUMN_SIZE"),
+                        rs.getInt("DECIMAL_DIGITS")
+                });
+            }
+        }
+        return types;
+    }
+
+    @Override
+    protected boolean releasesSavepoints() {
+        return false;
+    }
+}
@@ -0,0 +1,72 @@
+package com.migrator.core.db.impl.mssql;
+
+import com.migrator.core.db.StatementPlanner;
+import com.migrator.core.sql.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SQL Server planner: SET SHOWPLAN_XML ON returns the estimated plan
+ * instead of running the statement. Table sizes come from
+ * sys.dm_db_partition_stats (needs VIEW DATABASE STATE).
+ */
+public class MssqlStatementPlanner implements StatementPlanner {
+
+    private static final Pattern STATEMENT_ROWS = Pattern.compile("StatementEstRows=\"([0-9.eE+-]+)\"");
+
+    private final Connection connection;
+
+    public MssqlStatementPlanner(Connection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public SqlDialect dialect() {
+        return SqlDialect.MSSQL;
+    }
+
+    /**
+     * SHOWPLAN_XML must be the only statement of its batch, and while it
+     * is on nothing else runs, so it is switched on for each estimate.
+     */
+    @Override
+    public long estimateRows(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("SET SHOWPLAN_XML ON");
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                double rows = 0;
+                while (rs.next()) {
+                    Matcher matcher = STATEMENT_ROWS.matcher(rs.getString(1));
+                    while (matcher.find()) {
+                        rows = Math.max(rows, Double.parseDouble(matcher.group(1)));
+                    }
+                }
+                return Math.round(rows);
+            } finally {
+                stmt.execute("SET SHOWPLAN_XML OFF");
+            }
+        }
+    }
+
+    @Override
+    public TableSize tableSize(String table) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("""
+                SELECT SUM(CASE WHEN index_id IN (0, 1) THEN row_count ELSE 0 END),
+                       SUM(used_page_count) * 8192
+                FROM sys.dm_db_partition_stats
+                WHERE object_id = OBJECT_ID(?)
+                HAVING COUNT(*) > 0
+                """)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? new TableSize(rs.getLong(1), rs.getLong(2)) : null;
+            }
+        }
+    }
+}
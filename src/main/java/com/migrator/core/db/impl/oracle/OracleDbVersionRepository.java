@@ -1,32 +1,65 @@
 package com.migrator.core.db.impl.oracle;
 
 import com.migrator.core.db.DbVersionRepository;
+import com.migrator.core.db.impl.InfrastructureVersion;
+import com.migrator.core.events.HistoryWriteEvent;
+import com.migrator.model.AppliedVersionIndex;
+import com.migrator.model.BackfillProgress;
 import com.migrator.model.MigrationScript;
+import com.migrator.model.ScriptMetrics;
 
 import java.sql.*;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.function.BiConsumer;
 
 public class OracleDbVersionRepository implements DbVersionRepository {
     private final Connection connection;
 
+    /** Rows per round trip when reading the history table */
+    private static final int FETCH_SIZE = 5000;
+
+    /** Cached history INSERT, reused for every migration of the run */
+    private PreparedStatement insertStatement;
+
+    /** Set once the migration tables are known to be up to date */
+    private boolean infrastructureReady;
+
+    /** Only reads: never creates or upgrades the migration tables */
+    private final boolean readOnly;
+
+    /** Infrastructure version found by a read-only repository, null until read */
+    private Integer existingVersion;
+
     public OracleDbVersionRepository(Connection connection) {
+        this(connection, false);
+    }
+
+    /**
+     * @param readOnly True to only read the history (validate, plan): the
+     *                 migration tables are never created or upgraded, and
+     *                 missing tables read as an empty history
+     */
+    public OracleDbVersionRepository(Connection connection, boolean readOnly) {
         this.connection = connection;
+        this.readOnly = readOnly;
     }
 
     @Override
-    public Set<String> getAppliedVersions() {
-        Set<String> versions = new HashSet<>();
+    public AppliedVersionIndex getAppliedVersions() {
+        AppliedVersionIndex.Builder versions = AppliedVersionIndex.builder();
 
         try {
-            ensureMigrationInfrastructure();
+            if (readableVersion() == InfrastructureVersion.MISSING) {
+                return versions.build();
+            }
 
+            // Ordered by the unique index on version, streamed in large pages
             try (PreparedStatement stmt = connection.prepareStatement(
-                    "SELECT version FROM schema_migrations"
+                    "SELECT version FROM schema_migrations ORDER BY version"
             )) {
+                stmt.setFetchSize(FETCH_SIZE);
                 ResultSet rs = stmt.executeQuery();
                 while (rs.next()) {
-                    versions.add(rs.getString("version"));
+                    versions.add(rs.getString(1));
                 }
             }
 
@@ -34,23 +67,57 @@ public class OracleDbVersionRepository implements DbVersionRepository {
             throw new RuntimeException("Failed to fetch applied migrations", e);
         }
 
-        return versions;
+        return versions.build();
+    }
+
+    @Override
+    public void forEachAppliedChecksum(BiConsumer<String, String> action) {
+        try {
+            if (readableVersion() == InfrastructureVersion.MISSING) {
+                return;
+            }
+
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT version, checksum FROM schema_migrations ORDER BY version"
+            )) {
+                stmt.setFetchSize(FETCH_SIZE);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    action.accept(rs.getString(1), rs.getString(2));
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read migration checksums", e);
+        }
     }
 
     @Override
-    public void save(MigrationScript script) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-                """
-                INSERT INTO schema_migrations
-                    (version, description, checksum)
-                VALUES (?, ?, ?)
-                """
-        )) {
+    public void save(MigrationScript script, ScriptMetrics metrics) {
+        requireWritable();
+        HistoryWriteEvent event = new HistoryWriteEvent();
+        event.begin();
+        try {
+            PreparedStatement stmt = insertStatement();
             stmt.setString(1, script.getVersion());
             stmt.setString(2, script.getDescription());
             stmt.setString(3, script.getChecksum());
+            if (metrics != null) {
+                stmt.setLong(4, metrics.getExecutionMillis());
+                stmt.setLong(5, metrics.getRowsAffected());
+            } else {
+                stmt.setNull(4, Types.BIGINT);
+                stmt.setNull(5, Types.BIGINT);
+            }
             stmt.executeUpdate();
 
+            event.end();
+            if (event.shouldCommit()) {
+                event.version = script.getVersion();
+                event.bytes = script.getSize();
+                event.commit();
+            }
+
         } catch (SQLException e) {
             throw new RuntimeException(
                     "Failed to save migration record for version " + script.getVersion(), e
@@ -58,48 +125,223 @@ public class OracleDbVersionRepository implements DbVersionRepository {
         }
     }
 
+    @Override
+    public void close() {
+        if (insertStatement == null) {
+            return;
+        }
+        try {
+            insertStatement.close();
+        } catch (SQLException ignored) {
+        } finally {
+            insertStatement = null;
+        }
+    }
+
+    @Override
+    public BackfillProgress findBackfill(String version) {
+        try {
+            // schema_migration_backfill was added in infrastructure version 2
+            if (readableVersion() < 2) {
+                return null;
+            }
+
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT range_start, range_end, next_key FROM schema_migration_backfill WHERE version = ?"
+            )) {
+                stmt.setString(1, version);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next()
+                            ? new BackfillProgress(version, rs.getLong(1), rs.getLong(2), rs.getLong(3))
+                            : null;
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read backfill progress of version " + version, e);
+        }
+    }
+
+    @Override
+    public void saveBackfill(BackfillProgress progress) {
+        requireWritable();
+        try (PreparedStatement stmt = connection.prepareStatement("""
+                MERGE INTO schema_migration_backfill t
+                USING (SELECT ? AS version, ? AS range_start, ? AS range_end, ? AS next_key FROM dual) s
+                ON (t.version = s.version)
+                WHEN MATCHED THEN
+                  UPDATE SET t.next_key = s.next_key, t.updated_at = SYSTIMESTAMP
+                WHEN NOT MATCHED THEN
+                  INSERT (version, range_start, range_end, next_key)
+                  VALUES (s.version, s.range_start, s.range_end, s.next_key)
+                """)) {
+            stmt.setString(1, progress.version());
+            stmt.setLong(2, progress.rangeStart());
+            stmt.setLong(3, progress.rangeEnd());
+            stmt.setLong(4, progress.nextKey());
+            stmt.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save backfill progress of version " + progress.version(), e);
+        }
+    }
+
     /**
-     * Creates schema_migrations table if it does not exist (Oracle compatible).
+     * @return INSERT into schema_migrations, prepared once and reused
+     */
+    private PreparedStatement insertStatement() throws SQLException {
+        if (insertStatement == null || insertStatement.isClosed()) {
+            insertStatement = connection.prepareStatement("""
+                    INSERT INTO schema_migrations
+                        (version, description, checksum, execution_ms, rows_affected)
+                    VALUES (?, ?, ?, ?, ?)
+                    """);
+        }
+        return insertStatement;
+    }
+
+    /**
+     * Makes sure the migration tables exist and are up to date (Oracle compatible).
+     * The fast path is a single catalog query; DDL only runs when the
+     * tables are missing or were created by an older release.
      */
     private void ensureMigrationInfrastructure() throws SQLException {
+        if (infrastructureReady) {
+            return;
+        }
+
+        int version = readInfrastructureVersion();
+        if (version < InfrastructureVersion.CURRENT) {
+            upgradeInfrastructure(version);
+        }
+        InfrastructureVersion.warnIfNewer(version);
+
+        infrastructureReady = true;
+    }
+
+    /**
+     * Version of the tables about to be read. A read-only repository
+     * only reads the marker and never runs DDL; the others create or
+     * upgrade the tables first.
+     *
+     * @return Infrastructure version, or InfrastructureVersion.MISSING when
+     *         a read-only repository finds no tables
+     */
+    private int readableVersion() throws SQLException {
+        if (!readOnly) {
+            ensureMigrationInfrastructure();
+            return InfrastructureVersion.CURRENT;
+        }
+        if (existingVersion == null) {
+            existingVersion = historyTableExists() ? readInfrastructureVersion() : InfrastructureVersion.MISSING;
+            InfrastructureVersion.reportReadOnly(existingVersion);
+        }
+        return existingVersion;
+    }
+
+    private void requireWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("Migration history was opened read-only");
+        }
+    }
+
+    private boolean historyTableExists() throws SQLException {
+        return tableExists("SCHEMA_MIGRATIONS");
+    }
+
+    /**
+     * Reads the version marker from the schema_migrations table comment.
+     *
+     * @return Infrastructure version, or 0 when the table is missing or unmarked
+     */
+    private int readInfrastructureVersion() throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT comments FROM user_tab_comments WHERE table_name = 'SCHEMA_MIGRATIONS'"
+        );
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? InfrastructureVersion.parse(rs.getString(1)) : 0;
+        }
+    }
 
-        // 1. schema_migrations table
-        if (!tableExists("SCHEMA_MIGRATIONS")) {
+    /**
+     * Applies every upgrade step above the given version, then stamps
+     * the new version. All steps are idempotent.
+     */
+    private void upgradeInfrastructure(int from) throws SQLException {
+
+        if (from < 1) {
+            // 1. schema_migrations table
+            if (!tableExists("SCHEMA_MIGRATIONS")) {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("""
+                    CREATE TABLE schema_migrations (
+                        id NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                        version VARCHAR2(50) NOT NULL UNIQUE,
+                        description VARCHAR2(255),
+                        applied_at TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL,
+                        checksum VARCHAR2(255)
+                    )
+                """);
+                }
+            }
+
+            // 2. schema_migration_lock table
+            if (!tableExists("SCHEMA_MIGRATION_LOCK")) {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("""
+                    CREATE TABLE schema_migration_lock (
+                        id NUMBER PRIMARY KEY,
+                        locked_at TIMESTAMP
+                    )
+                """);
+                }
+            }
+
+            // 3. ensure single lock row (id = 1)
+            try (PreparedStatement ps = connection.prepareStatement("""
+            MERGE INTO schema_migration_lock t
+            USING (SELECT 1 AS id FROM dual) s
+            ON (t.id = s.id)
+            WHEN NOT MATCHED THEN
+              INSERT (id, locked_at)
+              VALUES (1, SYSTIMESTAMP)
+        """)) {
+                ps.executeUpdate();
+            }
+        }
+
+        // 4. backfill progress table
+        if (from < 2 && !tableExists("SCHEMA_MIGRATION_BACKFILL")) {
             try (Statement stmt = connection.createStatement()) {
                 stmt.execute("""
-                CREATE TABLE schema_migrations (
-                    id NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-                    version VARCHAR2(50) NOT NULL UNIQUE,
-                    description VARCHAR2(255),
-                    applied_at TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL,
-                    checksum VARCHAR2(255)
+                CREATE TABLE schema_migration_backfill (
+                    version VARCHAR2(50) PRIMARY KEY,
+                    range_start NUMBER(19) NOT NULL,
+                    range_end NUMBER(19) NOT NULL,
+                    next_key NUMBER(19) NOT NULL,
+                    updated_at TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL
                 )
             """);
             }
         }
 
-        // 2. schema_migration_lock table
-        if (!tableExists("SCHEMA_MIGRATION_LOCK")) {
+        // 5. execution statistics
+        if (from < 3 && !columnExists("SCHEMA_MIGRATIONS", "EXECUTION_MS")) {
             try (Statement stmt = connection.createStatement()) {
-                stmt.execute("""
-                CREATE TABLE schema_migration_lock (
-                    id NUMBER PRIMARY KEY,
-                    locked_at TIMESTAMP
-                )
-            """);
+                stmt.execute("ALTER TABLE schema_migrations ADD (execution_ms NUMBER(19), rows_affected NUMBER(19))");
             }
         }
 
-        // 3. ensure single lock row (id = 1)
-        try (PreparedStatement ps = connection.prepareStatement("""
-        MERGE INTO schema_migration_lock t
-        USING (SELECT 1 AS id FROM dual) s
-        ON (t.id = s.id)
-        WHEN NOT MATCHED THEN
-          INSERT (id, locked_at)
-          VALUES (1, SYSTIMESTAMP)
-    """)) {
-            ps.executeUpdate();
+        // 6. completion counter read by following processes
+        if (from < 4 && !columnExists("SCHEMA_MIGRATION_LOCK", "COMPLETIONS")) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("ALTER TABLE schema_migration_lock ADD (completions NUMBER(19) DEFAULT 0 NOT NULL)");
+            }
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("COMMENT ON TABLE schema_migrations IS '"
+                    + InfrastructureVersion.marker(InfrastructureVersion.CURRENT) + "'");
         }
     }
 
@@ -120,4 +362,17 @@ public class OracleDbVersionRepository implements DbVersionRepository {
         }
     }
 
+    private boolean columnExists(String tableName, String columnName) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT COUNT(*) FROM user_tab_columns WHERE table_name = ? AND column_name = ?")) {
+            ps.setString(1, tableName);
+            ps.setString(2, columnName);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1) > 0;
+            }
+        }
+    }
+
 }
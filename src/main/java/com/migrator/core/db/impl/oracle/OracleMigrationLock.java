@@ -1,36 +1,142 @@
 package com.migrator.core.db.impl.oracle;
 
 import com.migrator.core.db.impl.MigrationLock;
+import com.migrator.core.events.LockAcquireEvent;
 
 import java.sql.CallableStatement;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 
+/**
+ * Oracle migration lock based on DBMS_LOCK.
+ *
+ * The lock is requested with release_on_commit => FALSE so it stays
+ * with the session, like the other implementations, and commits on
+ * the lock connection do not drop it.
+ */
 public class OracleMigrationLock implements MigrationLock {
 
+    private static final int LOCK_ID = 123456;
+
+    /** DBMS_LOCK.REQUEST accepts at most 32767 seconds (MAXWAIT) */
+    private static final int MAX_TIMEOUT_SECONDS = 32767;
+
     private final Connection connection;
+    private final long timeoutMillis;
 
     public OracleMigrationLock(Connection connection) {
+        this(connection, 0);
+    }
+
+    /**
+     * @param connection    Dedicated connection that holds the lock
+     * @param timeoutMillis Maximum wait for the lock, rounded up to seconds (0 = fail fast)
+     */
+    public OracleMigrationLock(Connection connection, long timeoutMillis) {
         this.connection = connection;
+        this.timeoutMillis = timeoutMillis;
     }
 
     @Override
     public void acquire() throws SQLException {
-        try (CallableStatement stmt = connection.prepareCall(
-                "{ call DBMS_LOCK.REQUEST(?, DBMS_LOCK.X_MODE, 0, TRUE) }"
-        )) {
-            stmt.setInt(1, 123456); // constant lock ID
-            stmt.execute();
+        LockAcquireEvent event = new LockAcquireEvent();
+        event.begin();
+        try {
+            int seconds = (int) Math.min((timeoutMillis + 999) / 1000, MAX_TIMEOUT_SECONDS);
+            int result = request(seconds);
+            if (result == 1) {
+                throw new SQLException("Timed out after " + seconds + " s waiting for the migration lock");
+            }
+            if (!isGranted(result)) {
+                throw new SQLException("Could not acquire migration lock (DBMS_LOCK.REQUEST returned " + result + ")");
+            }
+            event.acquired = true;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.databaseType = "oracle";
+                event.commit();
+            }
         }
     }
 
+    @Override
+    public boolean tryAcquire() throws SQLException {
+        int result = request(0);
+        if (result == 1) {
+            return false;
+        }
+        if (!isGranted(result)) {
+            throw new SQLException("Could not acquire migration lock (DBMS_LOCK.REQUEST returned " + result + ")");
+        }
+        return true;
+    }
+
     @Override
     public void release() throws SQLException {
         try (CallableStatement stmt = connection.prepareCall(
-                "{ call DBMS_LOCK.RELEASE(?) }"
+                "BEGIN ? := DBMS_LOCK.RELEASE(?); END;"
         )) {
-            stmt.setInt(1, 123456);
+            stmt.registerOutParameter(1, Types.INTEGER);
+            stmt.setInt(2, LOCK_ID);
+            stmt.execute();
+            if (stmt.getInt(1) != 0) {
+                System.out.println("WARNING: Migration lock was not held at release");
+            }
+        }
+    }
+
+    @Override
+    public void signalCompletion() throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "UPDATE schema_migration_lock SET completions = completions + 1, locked_at = SYSTIMESTAMP WHERE id = 1")) {
+            stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public String completionToken() {
+        try {
+            // Table or column not created yet: no run has completed
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT COUNT(*) FROM user_tab_columns WHERE table_name = 'SCHEMA_MIGRATION_LOCK' AND column_name = 'COMPLETIONS'");
+                 ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) == 0) {
+                    return "0";
+                }
+            }
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT completions FROM schema_migration_lock WHERE id = 1");
+                 ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? String.valueOf(rs.getLong(1)) : "0";
+            }
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return DBMS_LOCK.REQUEST result (0 success, 1 timeout, 4 already owned)
+     */
+    private int request(int timeoutSeconds) throws SQLException {
+        try (CallableStatement stmt = connection.prepareCall("""
+                BEGIN
+                  ? := DBMS_LOCK.REQUEST(id => ?, lockmode => DBMS_LOCK.X_MODE,
+                                         timeout => ?, release_on_commit => FALSE);
+                END;
+                """)) {
+            stmt.registerOutParameter(1, Types.INTEGER);
+            stmt.setInt(2, LOCK_ID);
+            stmt.setInt(3, timeoutSeconds);
             stmt.execute();
+            return stmt.getInt(1);
         }
     }
+
+    private static boolean isGranted(int result) {
+        return result == 0 || result == 4;
+    }
 }
@@ -1,51 +1,45 @@
 package com.migrator.core.db.impl.oracle;
 
+import com.migrator.core.db.RetryPolicy;
 import com.migrator.core.db.ScriptExecutor;
-import com.migrator.model.MigrationStatus;
+import com.migrator.core.sql.SqlDialect;
+import com.migrator.model.BulkLoadSpec;
 import com.migrator.model.MigrationScript;
 
 import java.sql.Connection;
-import java.sql.SQLException;
-import java.sql.Statement;
 
 public class OracleScriptExecutor extends ScriptExecutor {
     private final Connection connection;
 
     public OracleScriptExecutor(Connection connection) {
+        super(RetryPolicy.ORACLE);
         this.connection = connection;
     }
 
+    @Override
+    protected SqlDialect dialect() {
+        return SqlDialect.ORACLE;
+    }
+
     @Override
     protected void execute(MigrationScript script) throws Exception {
-        // Oracle scripts are typically separated by "/"
-        String[] statements = script.getContent()
-                .split("(?m)^\\s*/\\s*$");
-
-        try (Statement stmt = connection.createStatement()) {
-
-            for (String raw : statements) {
-                String sql = raw.trim();
-
-                if (sql.isEmpty()) {
-                    continue;
-                }
-
-                // Remove trailing semicolon if present
-                if (sql.endsWith(";")) {
-                    sql = sql.substring(0, sql.length() - 1);
-                }
-
-                stmt.execute(sql);
-                script.updateStrategy(MigrationStatus.APPLIED);
-            }
-
-        } catch (SQLException e) {
-            throw new SQLException(
-                    "Migration failed while executing version "
-                            + script.getVersion()
-                            + " (" + script.getDescription() + ")",
-                    e
-            );
-        }
+        // Statements end with ";" or a "/" line; PL/SQL blocks only with "/".
+        // The tokenizer already strips the trailing ";" of plain statements.
+        executeStatements(connection, script, SqlDialect.ORACLE);
+    }
+
+    /**
+     * Oracle has no bulk API in plain JDBC; rows are inserted with a
+     * batched prepared INSERT instead.
+     */
+    @Override
+    protected long bulkLoad(MigrationScript script) throws Exception {
+        BulkLoadSpec spec = BulkLoadSpec.read(script.getSource(), script.getDataFile());
+        return insertRows(connection, spec);
+    }
+
+    @Override
+    protected boolean releasesSavepoints() {
+        return false;
     }
 }
@@ -0,0 +1,64 @@
+package com.migrator.core.db.impl.oracle;
+
+import com.migrator.core.db.StatementPlanner;
+import com.migrator.core.sql.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * Oracle planner: EXPLAIN PLAN writes the estimated plan to PLAN_TABLE
+ * (a session-private temporary table) without running the statement.
+ * Table sizes come from user_tables statistics and user_segments, so
+ * tables of other schemas are not found.
+ */
+public class OracleStatementPlanner implements StatementPlanner {
+
+    private static final String STATEMENT_ID = "migrator-plan";
+
+    private final Connection connection;
+
+    public OracleStatementPlanner(Connection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public SqlDialect dialect() {
+        return SqlDialect.ORACLE;
+    }
+
+    @Override
+    public long estimateRows(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("EXPLAIN PLAN SET STATEMENT_ID = '" + STATEMENT_ID + "' FOR " + sql);
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT MAX(cardinality) FROM plan_table WHERE statement_id = '" + STATEMENT_ID + "'")) {
+                return rs.next() ? rs.getLong(1) : 0;
+            } finally {
+                stmt.executeUpdate("DELETE FROM plan_table WHERE statement_id = '" + STATEMENT_ID + "'");
+            }
+        }
+    }
+
+    @Override
+    public TableSize tableSize(String table) throws SQLException {
+        String name = table.substring(table.lastIndexOf('.') + 1);
+        name = name.startsWith("\"") ? name.replace("\"", "") : name.toUpperCase(Locale.ROOT);
+
+        try (PreparedStatement stmt = connection.prepareStatement("""
+                SELECT NVL(t.num_rows, 0),
+                       NVL((SELECT SUM(s.bytes) FROM user_segments s WHERE s.segment_name = t.table_name), -1)
+                FROM user_tables t
+                WHERE t.table_name = ?
+                """)) {
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? new TableSize(rs.getLong(1), rs.getLong(2)) : null;
+            }
+        }
+    }
+}
@@ -1,40 +1,109 @@
 package com.migrator.core.db.impl.postgres;
 
 import com.migrator.core.db.DbVersionRepository;
+import com.migrator.core.db.impl.InfrastructureVersion;
+import com.migrator.core.events.HistoryWriteEvent;
+import com.migrator.model.AppliedVersionIndex;
+import com.migrator.model.BackfillProgress;
 import com.migrator.model.MigrationScript;
+import com.migrator.model.ScriptMetrics;
 
 import javax.sql.DataSource;
 import java.sql.*;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.function.BiConsumer;
 
 public class PostgresDbVersionRepository implements DbVersionRepository {
     private final Connection connection;
 
+    /** Rows per round trip when reading the history table */
+    private static final int FETCH_SIZE = 5000;
+
+    /** Cached history INSERT, reused for every migration of the run */
+    private PreparedStatement insertStatement;
+
+    /** Set once the migration tables are known to be up to date */
+    private boolean infrastructureReady;
+
+    /** Only reads: never creates or upgrades the migration tables */
+    private final boolean readOnly;
+
+    /** Infrastructure version found by a read-only repository, null until read */
+    private Integer existingVersion;
+
+    /** History read ahead of time (tenant mode), returned by the next getAppliedVersions() */
+    private AppliedVersionIndex preloaded;
+
     /**
      * @param connection JDBC connection used for queries
      */
     public PostgresDbVersionRepository(Connection connection) {
+        this(connection, false);
+    }
+
+    /**
+     * @param connection JDBC connection used for queries
+     * @param readOnly   True to only read the history (validate, plan): the
+     *                   migration tables are never created or upgraded, and
+     *                   missing tables read as an empty history
+     */
+    public PostgresDbVersionRepository(Connection connection, boolean readOnly) {
         this.connection = connection;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Creates a repository whose history was already read, e.g. for
+     * many tenant schemas at once. The caller guarantees the migration
+     * tables in the current search_path are up to date.
+     *
+     * @param connection JDBC connection used for queries
+     * @param applied    Applied versions of the schema in the search_path
+     */
+    public PostgresDbVersionRepository(Connection connection, AppliedVersionIndex applied) {
+        this.connection = connection;
+        this.preloaded = applied;
+        this.infrastructureReady = true;
+        this.readOnly = false;
     }
 
     /**
      * Fetches all migration versions that are already applied.
      *
-     * @return A Set of version strings, e.g., ["202501100930", "202501120101"]
+     * @return Sorted index of version strings, e.g., ["202501100930", "202501120101"]
      */
-    public Set<String> getAppliedVersions() {
-        Set<String> versions = new HashSet<>();
+    public AppliedVersionIndex getAppliedVersions() {
+        if (preloaded != null) {
+            AppliedVersionIndex applied = preloaded;
+            preloaded = null;
+            return applied;
+        }
+
+        AppliedVersionIndex.Builder versions = AppliedVersionIndex.builder();
 
         try {
-            ensureMigrationInfrastructure();
+            if (readableVersion() == InfrastructureVersion.MISSING) {
+                return versions.build();
+            }
+
+            // The driver only honours the fetch size inside a transaction;
+            // in autocommit mode it would buffer the whole table
+            boolean autoCommit = connection.getAutoCommit();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
 
+            // Ordered by the unique index on version, streamed in large pages
             try (PreparedStatement stmt = connection.prepareStatement(
-                    "SELECT version FROM schema_migrations"
+                    "SELECT version FROM schema_migrations ORDER BY version"
             )) {
+                stmt.setFetchSize(FETCH_SIZE);
                 ResultSet rs = stmt.executeQuery();
                 while (rs.next()) {
-                    versions.add(rs.getString("version"));
+                    versions.add(rs.getString(1));
+                }
+            } finally {
+                if (autoCommit) {
+                    connection.setAutoCommit(true);
                 }
             }
 
@@ -42,23 +111,79 @@ public class PostgresDbVersionRepository implements DbVersionRepository {
             throw new RuntimeException("Failed to fetch applied migrations", e);
         }
 
-        return versions;
+        return versions.build();
+    }
+
+    /**
+     * Streams the version and checksum of every applied migration
+     * with a single query, without keeping the rows in memory.
+     *
+     * @param action Receives (version, checksum); checksum may be null
+     */
+    @Override
+    public void forEachAppliedChecksum(BiConsumer<String, String> action) {
+        try {
+            if (readableVersion() == InfrastructureVersion.MISSING) {
+                return;
+            }
+
+            boolean autoCommit = connection.getAutoCommit();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT version, checksum FROM schema_migrations ORDER BY version"
+            )) {
+                stmt.setFetchSize(FETCH_SIZE);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    action.accept(rs.getString(1), rs.getString(2));
+                }
+            } finally {
+                if (autoCommit) {
+                    connection.setAutoCommit(true);
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read migration checksums", e);
+        }
     }
 
     /**
      * Saves a successfully executed migration to the database.
+     * Runs inside the migration transaction; nothing is committed here.
      *
-     * @param script MigrationScript that was just executed
+     * @param script  MigrationScript that was just executed
+     * @param metrics Timings of the run, or null
      */
-    public void save(MigrationScript script) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-                "INSERT INTO schema_migrations (version, description, checksum) VALUES (?, ?, ?)"
-        )) {
+    @Override
+    public void save(MigrationScript script, ScriptMetrics metrics) {
+        requireWritable();
+        HistoryWriteEvent event = new HistoryWriteEvent();
+        event.begin();
+        try {
+            PreparedStatement stmt = insertStatement();
             stmt.setString(1, script.getVersion());
             stmt.setString(2, script.getDescription());
             stmt.setString(3, script.getChecksum());
+            if (metrics != null) {
+                stmt.setLong(4, metrics.getExecutionMillis());
+                stmt.setLong(5, metrics.getRowsAffected());
+            } else {
+                stmt.setNull(4, Types.BIGINT);
+                stmt.setNull(5, Types.BIGINT);
+            }
             stmt.executeUpdate();
 
+            event.end();
+            if (event.shouldCommit()) {
+                event.version = script.getVersion();
+                event.bytes = script.getSize();
+                event.commit();
+            }
+
         } catch (SQLException e) {
             throw new RuntimeException(
                     "Failed to save migration record for version " + script.getVersion(), e
@@ -66,53 +191,226 @@ public class PostgresDbVersionRepository implements DbVersionRepository {
         }
     }
 
-    public void saveApplied(Connection connection, MigrationScript script) throws SQLException {
+    @Override
+    public void close() {
+        if (insertStatement == null) {
+            return;
+        }
+        try {
+            insertStatement.close();
+        } catch (SQLException ignored) {
+        } finally {
+            insertStatement = null;
+        }
+    }
+
+    @Override
+    public BackfillProgress findBackfill(String version) {
+        try {
+            // schema_migration_backfill was added in infrastructure version 2
+            if (readableVersion() < 2) {
+                return null;
+            }
+
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT range_start, range_end, next_key FROM schema_migration_backfill WHERE version = ?"
+            )) {
+                stmt.setString(1, version);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next()
+                            ? new BackfillProgress(version, rs.getLong(1), rs.getLong(2), rs.getLong(3))
+                            : null;
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read backfill progress of version " + version, e);
+        }
+    }
+
+    @Override
+    public void saveBackfill(BackfillProgress progress) {
+        requireWritable();
+        try (PreparedStatement stmt = connection.prepareStatement("""
+                INSERT INTO schema_migration_backfill (version, range_start, range_end, next_key)
+                VALUES (?, ?, ?, ?)
+                ON CONFLICT (version) DO UPDATE
+                SET next_key = EXCLUDED.next_key, updated_at = NOW()
+                """)) {
+            stmt.setString(1, progress.version());
+            stmt.setLong(2, progress.rangeStart());
+            stmt.setLong(3, progress.rangeEnd());
+            stmt.setLong(4, progress.nextKey());
+            stmt.executeUpdate();
 
-        String sql = """
-        INSERT INTO schema_migrations
-        (version, description, status, executed_at)
-        VALUES (?, ?, 'APPLIED', CURRENT_TIMESTAMP)
-    """;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save backfill progress of version " + progress.version(), e);
+        }
+    }
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, script.getVersion());
-            ps.setString(2, script.getDescription());
-            ps.executeUpdate();
+    /**
+     * @return INSERT into schema_migrations, prepared once and reused
+     */
+    private PreparedStatement insertStatement() throws SQLException {
+        if (insertStatement == null || insertStatement.isClosed()) {
+            insertStatement = connection.prepareStatement("INSERT INTO schema_migrations (version, description, checksum, execution_ms, rows_affected) VALUES (?, ?, ?, ?, ?)");
         }
+        return insertStatement;
     }
 
 
+    /**
+     * Makes sure the migration tables exist and are up to date.
+     * The fast path is a single catalog query; DDL only runs when the
+     * tables are missing or were created by an older release.
+     */
     private void ensureMigrationInfrastructure() throws SQLException {
+        if (infrastructureReady) {
+            return;
+        }
 
-        try (Statement stmt = connection.createStatement()) {
+        int version = readInfrastructureVersion();
+        if (version < InfrastructureVersion.CURRENT) {
+            upgradeInfrastructure(version);
+        }
+        InfrastructureVersion.warnIfNewer(version);
+
+        infrastructureReady = true;
+    }
+
+    /**
+     * Version of the tables about to be read. A read-only repository
+     * only reads the marker and never runs DDL; the others create or
+     * upgrade the tables first.
+     *
+     * @return Infrastructure version, or InfrastructureVersion.MISSING when
+     *         a read-only repository finds no tables
+     */
+    private int readableVersion() throws SQLException {
+        if (!readOnly) {
+            ensureMigrationInfrastructure();
+            return InfrastructureVersion.CURRENT;
+        }
+        if (existingVersion == null) {
+            existingVersion = historyTableExists() ? readInfrastructureVersion() : InfrastructureVersion.MISSING;
+            InfrastructureVersion.reportReadOnly(existingVersion);
+        }
+        return existingVersion;
+    }
+
+    private void requireWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("Migration history was opened read-only");
+        }
+    }
+
+    /**
+     * @return True when schema_migrations exists in the search_path
+     */
+    private boolean historyTableExists() throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT to_regclass('schema_migrations') IS NOT NULL"
+        );
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    /**
+     * Reads the version marker from the schema_migrations table comment.
+     *
+     * @return Infrastructure version, or 0 when the table is missing or unmarked
+     */
+    private int readInfrastructureVersion() throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT obj_description(to_regclass('schema_migrations'), 'pg_class')"
+        );
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? InfrastructureVersion.parse(rs.getString(1)) : 0;
+        }
+    }
 
-            // 1. schema_migrations table
-            stmt.execute("""
-            CREATE TABLE IF NOT EXISTS schema_migrations (
-                id SERIAL PRIMARY KEY,
-                version VARCHAR(50) NOT NULL UNIQUE,
-                description VARCHAR(255),
-                applied_at TIMESTAMP NOT NULL DEFAULT NOW(),
-                checksum VARCHAR(255)
-            )
-        """);
-
-            // 2. schema_migration_lock table
-            stmt.execute("""
-            CREATE TABLE IF NOT EXISTS schema_migration_lock (
-                id INT PRIMARY KEY,
-                locked_at TIMESTAMP
-            )
-        """);
-        }
-
-        // 3. ensure single lock row
-        try (PreparedStatement ps = connection.prepareStatement("""
-        INSERT INTO schema_migration_lock (id, locked_at)
-        VALUES (1, NOW())
-        ON CONFLICT (id) DO NOTHING
-    """)) {
-            ps.executeUpdate();
+    /**
+     * Applies every upgrade step above the given version, then stamps
+     * the new version. All steps are idempotent.
+     */
+    private void upgradeInfrastructure(int from) throws SQLException {
+
+        if (from < 1) {
+            try (Statement stmt = connection.createStatement()) {
+
+                // 1. schema_migrations table
+                stmt.execute("""
+                CREATE TABLE IF NOT EXISTS schema_migrations (
+                    id SERIAL PRIMARY KEY,
+                    version VARCHAR(50) NOT NULL UNIQUE,
+                    description VARCHAR(255),
+                    applied_at TIMESTAMP NOT NULL DEFAULT NOW(),
+                    checksum VARCHAR(255)
+                )
+            """);
+
+                // 2. schema_migration_lock table
+                stmt.execute("""
+                CREATE TABLE IF NOT EXISTS schema_migration_lock (
+                    id INT PRIMARY KEY,
+                    locked_at TIMESTAMP
+                )
+            """);
+            }
+
+            // 3. ensure single lock row
+            try (PreparedStatement ps = connection.prepareStatement("""
+            INSERT INTO schema_migration_lock (id, locked_at)
+            VALUES (1, NOW())
+            ON CONFLICT (id) DO NOTHING
+        """)) {
+                ps.executeUpdate();
+            }
+        }
+
+        if (from < 2) {
+            try (Statement stmt = connection.createStatement()) {
+
+                // 4. backfill progress table
+                stmt.execute("""
+                CREATE TABLE IF NOT EXISTS schema_migration_backfill (
+                    version VARCHAR(50) PRIMARY KEY,
+                    range_start BIGINT NOT NULL,
+                    range_end BIGINT NOT NULL,
+                    next_key BIGINT NOT NULL,
+                    updated_at TIMESTAMP NOT NULL DEFAULT NOW()
+                )
+            """);
+            }
+        }
+
+        if (from < 3) {
+            try (Statement stmt = connection.createStatement()) {
+
+                // 5. execution statistics
+                stmt.execute("""
+                ALTER TABLE schema_migrations
+                    ADD COLUMN IF NOT EXISTS execution_ms BIGINT,
+                    ADD COLUMN IF NOT EXISTS rows_affected BIGINT
+            """);
+            }
+        }
+
+        if (from < 4) {
+            try (Statement stmt = connection.createStatement()) {
+
+                // 6. completion counter read by following processes
+                stmt.execute("""
+                ALTER TABLE schema_migration_lock
+                    ADD COLUMN IF NOT EXISTS completions BIGINT NOT NULL DEFAULT 0
+            """);
+            }
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("COMMENT ON TABLE schema_migrations IS '"
+                    + InfrastructureVersion.marker(InfrastructureVersion.CURRENT) + "'");
         }
     }
 
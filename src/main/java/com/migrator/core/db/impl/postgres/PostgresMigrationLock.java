@@ -1,34 +1,223 @@
 package com.migrator.core.db.impl.postgres;
 
 import com.migrator.core.db.impl.MigrationLock;
+import com.migrator.core.events.LockAcquireEvent;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Postgres migration lock based on a session-level advisory lock.
+ *
+ * The lock belongs to the database session, not to a transaction, so
+ * no transaction stays open while migrations run: vacuum is not held
+ * back, and commits of the migration connection cannot end the lock
+ * early. Give this class a dedicated connection; the lock is released
+ * by release() or when that connection closes.
+ *
+ * acquire() polls pg_try_advisory_lock with exponential backoff and
+ * jitter until the wait timeout, instead of blocking indefinitely in
+ * pg_advisory_lock.
+ *
+ * Followers wait with LISTEN on the migrator_done channel; the leader
+ * increments schema_migration_lock.completions and sends NOTIFY when done,
+ * and again when it releases the lock.
+ */
 public class PostgresMigrationLock implements MigrationLock {
 
+    /** Advisory lock key shared by every migrator process ("migrat") */
+    static final long LOCK_KEY = 0x6D6967726174L;
+
+    /** Default maximum wait for the lock */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 300_000;
+
+    private static final long INITIAL_BACKOFF_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 2_000;
+
+    /** NOTIFY channel used to wake up followers */
+    private static final String CHANNEL = "migrator_done";
+
     private final Connection connection;
+    private final long timeoutMillis;
+    private boolean listening;
 
+    /**
+     * @param connection Dedicated connection that holds the lock
+     */
     public PostgresMigrationLock(Connection connection) {
+        this(connection, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param connection    Dedicated connection that holds the lock
+     * @param timeoutMillis Maximum time to wait for another migration to finish
+     */
+    public PostgresMigrationLock(Connection connection, long timeoutMillis) {
         this.connection = connection;
+        this.timeoutMillis = timeoutMillis;
     }
 
     @Override
-    public void acquire() throws SQLException {
-        connection.setAutoCommit(false);
+    public void acquire() throws SQLException, InterruptedException {
+        LockAcquireEvent event = new LockAcquireEvent();
+        event.begin();
+        try {
+            long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+            long backoff = INITIAL_BACKOFF_MILLIS;
+            boolean reported = false;
 
-        try (PreparedStatement stmt = connection.prepareStatement(
-                "SELECT id FROM schema_migration_lock WHERE id = 1 FOR UPDATE"
-        )) {
-            stmt.executeQuery();
+            while (!tryAcquire()) {
+                if (!reported) {
+                    Integer holder = holderPid();
+                    System.out.println("Migration lock is held by another session"
+                            + (holder != null ? " (pid " + holder + ")" : "") + ", waiting...");
+                    reported = true;
+                }
+
+                long remaining = (deadline - System.nanoTime()) / 1_000_000;
+                if (remaining <= 0) {
+                    throw new SQLException("Timed out after " + timeoutMillis + " ms waiting for the migration lock");
+                }
+
+                // Jitter spreads out processes that started together
+                long sleep = Math.min(remaining, backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+                Thread.sleep(sleep);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+            event.acquired = true;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.databaseType = "postgres";
+                event.commit();
+            }
         }
     }
 
+    /**
+     * Unlocks and notifies followers, so a leader that failed without
+     * signalling completion does not leave them waiting for their next
+     * poll.
+     */
     @Override
     public void release() throws SQLException {
-        connection.commit();
-        connection.setAutoCommit(true);
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            stmt.setLong(1, LOCK_KEY);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next() && !rs.getBoolean(1)) {
+                    System.out.println("WARNING: Migration lock was not held at release");
+                }
+            }
+        }
+        notifyFollowers("released");
+    }
+
+    @Override
+    public boolean tryAcquire() throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            stmt.setLong(1, LOCK_KEY);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
     }
-}
 
+    /**
+     * Counts the completion on the lock row and notifies followers
+     * listening on the channel. NOTIFY is delivered when the autocommit
+     * statement ends.
+     */
+    @Override
+    public void signalCompletion() throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "UPDATE schema_migration_lock SET completions = completions + 1, locked_at = clock_timestamp() WHERE id = 1")) {
+            stmt.executeUpdate();
+        }
+        notifyFollowers("completed");
+    }
+
+    private void notifyFollowers(String payload) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            stmt.setString(1, CHANNEL);
+            stmt.setString(2, payload);
+            stmt.executeQuery().close();
+        }
+    }
+
+    @Override
+    public String completionToken() {
+        try {
+            // Table or column not created yet: no run has completed
+            try (PreparedStatement stmt = connection.prepareStatement("""
+                    SELECT 1 FROM pg_attribute
+                    WHERE attrelid = to_regclass('schema_migration_lock')
+                      AND attname = 'completions' AND NOT attisdropped
+                    """);
+                 ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return "0";
+                }
+            }
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT completions FROM schema_migration_lock WHERE id = 1");
+                 ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? String.valueOf(rs.getLong(1)) : "0";
+            }
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Blocks on LISTEN instead of sleeping: wakes up as soon as the
+     * leader notifies, and at the latest after POLL_INTERVAL_MILLIS, so
+     * the lock is re-checked when a leader dies without notifying. The
+     * first call only subscribes and returns, so the caller re-checks
+     * the lock after LISTEN and cannot miss a notification sent in
+     * between.
+     */
+    @Override
+    public void awaitRelease(long maxWaitMillis) throws SQLException {
+        PGConnection pg = connection.unwrap(PGConnection.class);
+
+        if (!listening) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("LISTEN " + CHANNEL);
+            }
+            listening = true;
+            return;
+        }
+
+        int wait = (int) Math.max(1, Math.min(maxWaitMillis, POLL_INTERVAL_MILLIS));
+        PGNotification[] notifications = pg.getNotifications(wait);
+        if (notifications != null && notifications.length > 0) {
+            System.out.println("Received " + notifications[notifications.length - 1].getParameter()
+                    + " notice from the migration leader");
+        }
+    }
+
+    /**
+     * @return Backend pid currently holding the lock, if visible
+     */
+    private Integer holderPid() throws SQLException {
+        // A bigint key is stored as classid (high 32 bits) and objid (low 32 bits)
+        try (PreparedStatement stmt = connection.prepareStatement("""
+                SELECT pid FROM pg_locks
+                WHERE locktype = 'advisory' AND granted
+                  AND database = (SELECT oid FROM pg_database WHERE datname = current_database())
+                  AND classid::bigint = ? AND objid::bigint = ? AND objsubid = 1
+                """)) {
+            stmt.setLong(1, LOCK_KEY >>> 32);
+            stmt.setLong(2, LOCK_KEY & 0xFFFFFFFFL);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+}
@@ -1,43 +1,268 @@
 package com.migrator.core.db.impl.postgres;
 
+import com.migrator.core.db.RetryPolicy;
 import com.migrator.core.db.ScriptExecutor;
-import com.migrator.model.MigrationStatus;
+import com.migrator.core.sql.SqlDialect;
+import com.migrator.core.sql.SqlStatement;
+import com.migrator.core.sql.SqlTokenizer;
+import com.migrator.model.BulkLoadSpec;
+import com.migrator.model.MigrationKind;
 import com.migrator.model.MigrationScript;
+import org.postgresql.PGConnection;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Postgres script executor.
+ *
+ * Online DDL mode (see {@link #setOnlineDdl(long, int)}) keeps schema
+ * changes from stalling application traffic:
+ * - every DDL statement runs under a short lock_timeout, so a statement
+ *   waiting for a busy table fails fast instead of queueing every
+ *   query behind its lock request;
+ * - a statement that hits the timeout (SQLState 55P03) is retried
+ *   alone after a jittered backoff: inside a transaction it is rolled
+ *   back to a savepoint taken just before it. Once the retries are used
+ *   up the failure is permanent; the script is not retried on top;
+ * - scripts containing CONCURRENTLY statements (or VACUUM) run outside
+ *   a transaction, like scripts marked transactional=false. CONCURRENTLY
+ *   statements run without lock_timeout: they wait for every running
+ *   transaction to end, which a short timeout would abort on any busy
+ *   database.
+ */
 public class PostgresScriptExecutor extends ScriptExecutor {
+
+    /** lock_not_available: raised when lock_timeout expires */
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+
+    private static final long INITIAL_BACKOFF_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 10_000;
+
+    private static final Set<String> DDL = Set.of("CREATE", "ALTER", "DROP", "TRUNCATE", "REINDEX", "COMMENT");
+
+    /** Statements that Postgres refuses to run in a transaction block */
+    private static final Pattern NON_TRANSACTIONAL = Pattern.compile(
+            "^(CREATE\\s+(UNIQUE\\s+)?INDEX\\s+CONCURRENTLY|DROP\\s+INDEX\\s+CONCURRENTLY"
+                    + "|REINDEX\\s+.*\\bCONCURRENTLY\\b|VACUUM)\\b",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Pattern CREATE_INDEX_CONCURRENTLY = Pattern.compile(
+            "^CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+CONCURRENTLY\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?(\\S+)\\s+ON\\b",
+            Pattern.CASE_INSENSITIVE);
+
     private final Connection connection;
 
+    /** lock_timeout for DDL statements; 0 disables online mode */
+    private long lockTimeoutMillis;
+    private int maxLockRetries;
+
     /**
      * @param connection JDBC connection used to execute SQL statements
      */
     public PostgresScriptExecutor(Connection connection) {
+        super(RetryPolicy.POSTGRES);
         this.connection = connection;
     }
 
     /**
-     * Executes the given migration script.
+     * Enables online DDL mode.
+     *
+     * @param lockTimeoutMillis lock_timeout applied to each DDL statement
+     * @param maxLockRetries    Attempts per statement when the lock cannot be taken
+     */
+    public void setOnlineDdl(long lockTimeoutMillis, int maxLockRetries) {
+        if (lockTimeoutMillis < 1 || maxLockRetries < 1) {
+            throw new IllegalArgumentException("Online DDL needs a positive lock timeout and retry count");
+        }
+        this.lockTimeoutMillis = lockTimeoutMillis;
+        this.maxLockRetries = maxLockRetries;
+    }
+
+    @Override
+    protected void configureOnlineDdl(long lockTimeoutMillis, int maxLockRetries) {
+        setOnlineDdl(lockTimeoutMillis, maxLockRetries);
+    }
+
+    @Override
+    protected SqlDialect dialect() {
+        return SqlDialect.POSTGRES;
+    }
+
+    /**
+     * Executes the given migration script statement by statement.
      *
      * @param script MigrationScript containing SQL content
      * @throws SQLException when the database rejects the SQL
+     * @throws IOException  when the script cannot be read
      */
-    public void execute(MigrationScript script) throws SQLException {
+    public void execute(MigrationScript script) throws SQLException, IOException {
+        executeStatements(connection, script, SqlDialect.POSTGRES);
+    }
+
+    /**
+     * In online mode, also detects statements that cannot run in a
+     * transaction block, so such scripts need no directive.
+     */
+    @Override
+    protected boolean isTransactional(MigrationScript script) {
+        if (!super.isTransactional(script)) {
+            return false;
+        }
+        if (lockTimeoutMillis == 0 || script.getKind() == MigrationKind.BULK_LOAD) {
+            return true;
+        }
+
+        try (SqlTokenizer statements = new SqlTokenizer(script.openReader(), SqlDialect.POSTGRES)) {
+            while (statements.hasNext()) {
+                if (NON_TRANSACTIONAL.matcher(statements.next().sql()).find()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read version " + script.getVersion(), e);
+        }
+    }
+
+    @Override
+    protected long executeStatement(Statement stmt, SqlStatement statement) throws SQLException {
+        if (lockTimeoutMillis == 0 || !isDdl(statement.sql())) {
+            return super.executeStatement(stmt, statement);
+        }
+        if (NON_TRANSACTIONAL.matcher(statement.sql()).find()) {
+            try {
+                return super.executeStatement(stmt, statement);
+            } catch (SQLException e) {
+                dropInvalidIndex(stmt, statement.sql());
+                throw e;
+            }
+        }
+
+        boolean inTransaction = !connection.getAutoCommit();
+        long backoff = INITIAL_BACKOFF_MILLIS;
+
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            Savepoint savepoint = inTransaction ? connection.setSavepoint() : null;
+            try {
+                stmt.execute("SET lock_timeout = " + lockTimeoutMillis);
+                stmt.execute(statement.sql());
+                long rows = updateCount(stmt);
+                stmt.execute("RESET lock_timeout");
+                if (savepoint != null) {
+                    connection.releaseSavepoint(savepoint);
+                }
+                return rows;
+
+            } catch (SQLException e) {
+                if (savepoint != null) {
+                    // Also undoes the SET
+                    connection.rollback(savepoint);
+                } else {
+                    stmt.execute("RESET lock_timeout");
+                }
+
+                if (!LOCK_NOT_AVAILABLE.equals(e.getSQLState())) {
+                    throw e;
+                }
+                if (attempt >= maxLockRetries) {
+                    throw retriesExhausted(e);
+                }
+
+                long sleep = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+                System.out.println("Lock not available" + describe(statement) + ", retrying in "
+                        + sleep + " ms (attempt " + attempt + " of " + maxLockRetries + ")");
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                recordLockRetry(e.getSQLState(), System.nanoTime() - start);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * A failed CREATE INDEX CONCURRENTLY can leave an INVALID index
+     * behind, which would make the next run fail (or be skipped with
+     * IF NOT EXISTS). Drops it if present.
+     */
+    private static void dropInvalidIndex(Statement stmt, String sql) throws SQLException {
+        Matcher matcher = CREATE_INDEX_CONCURRENTLY.matcher(sql);
+        if (!matcher.find()) {
+            return;
+        }
+
+        String name = matcher.group(1);
+        try (PreparedStatement check = stmt.getConnection().prepareStatement(
+                "SELECT 1 FROM pg_index WHERE indexrelid = to_regclass(?) AND NOT indisvalid")) {
+            check.setString(1, name);
+            try (ResultSet rs = check.executeQuery()) {
+                if (!rs.next()) {
+                    return;
+                }
+            }
+        }
+
+        System.out.println("Dropping invalid index " + name + " left by the failed build");
+        stmt.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+    }
+
+    private static boolean isDdl(String sql) {
+        int end = 0;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        return DDL.contains(sql.substring(0, end).toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Streams the data file with COPY ... FROM STDIN. The file is sent
+     * as-is; Postgres parses it using the CSV rules of the descriptor.
+     */
+    @Override
+    protected long bulkLoad(MigrationScript script) throws Exception {
+        BulkLoadSpec spec = BulkLoadSpec.read(script.getSource(), script.getDataFile());
+        List<String> columns = loadColumns(spec);
+
+        String delimiter = spec.delimiter() == '\t'
+                ? "E'\\t'"
+                : "'" + (spec.delimiter() == '\'' ? "''" : String.valueOf(spec.delimiter())) + "'";
 
-        // Create a basic JDBC statement
-        try (Statement stmt = connection.createStatement()) {
+        String copy = "COPY " + spec.table()
+                + (columns.isEmpty() ? "" : " (" + String.join(", ", columns) + ")")
+                + " FROM STDIN WITH (FORMAT csv"
+                + ", HEADER " + spec.header()
+                + ", DELIMITER " + delimiter
+                + ", ENCODING '" + spec.encoding().name() + "')";
 
-            // Execute the raw SQL content
-            stmt.execute(script.getContent());
-            script.updateStrategy(MigrationStatus.APPLIED);
+        try (InputStream in = Files.newInputStream(spec.dataFile())) {
+            return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copy, in);
 
         } catch (SQLException e) {
             throw new SQLException(
-                    "Migration failed while executing version " + script.getVersion()
+                    "Bulk load failed for version " + script.getVersion()
                             + " (" + script.getDescription() + ")\n"
                             + "Cause: " + e.getMessage(),
+                    e.getSQLState(),
+                    e.getErrorCode(),
                     e
             );
         }
@@ -0,0 +1,65 @@
+package com.migrator.core.db.impl.postgres;
+
+import com.migrator.core.db.StatementPlanner;
+import com.migrator.core.sql.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Postgres planner: EXPLAIN (FORMAT JSON) without ANALYZE, which plans
+ * the statement but does not run it, and pg_class statistics.
+ */
+public class PostgresStatementPlanner implements StatementPlanner {
+
+    private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\":\\s*(\\d+)");
+
+    private final Connection connection;
+
+    public PostgresStatementPlanner(Connection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public SqlDialect dialect() {
+        return SqlDialect.POSTGRES;
+    }
+
+    /**
+     * Takes the largest row estimate of the plan: UPDATE and DELETE
+     * report 0 rows on their top node, the scan below them has the
+     * number of rows touched.
+     */
+    @Override
+    public long estimateRows(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN (FORMAT JSON) " + sql)) {
+            long rows = 0;
+            while (rs.next()) {
+                Matcher matcher = PLAN_ROWS.matcher(rs.getString(1));
+                while (matcher.find()) {
+                    rows = Math.max(rows, Long.parseLong(matcher.group(1)));
+                }
+            }
+            return rows;
+        }
+    }
+
+    @Override
+    public TableSize tableSize(String table) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("""
+                SELECT GREATEST(c.reltuples, 0)::bigint, pg_total_relation_size(c.oid)
+                FROM pg_class c WHERE c.oid = to_regclass(?)
+                """)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? new TableSize(rs.getLong(1), rs.getLong(2)) : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package com.migrator.core.db.impl.postgres;
+
+import com.migrator.core.db.DatabaseConnector;
+import com.migrator.core.db.DbVersionRepository;
+import com.migrator.core.db.impl.InfrastructureVersion;
+import com.migrator.core.db.impl.MigrationLock;
+import com.migrator.core.db.impl.MigrationService;
+import com.migrator.core.db.impl.ScriptLoader;
+import com.migrator.core.failure.FailureStrategy;
+import com.migrator.model.AppliedVersionIndex;
+import com.migrator.model.DbConfig;
+import com.migrator.model.ExecutorOptions;
+import com.migrator.model.MigrationScript;
+import com.migrator.model.RunReport;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Migrates many tenant schemas of one Postgres database.
+ *
+ * Each tenant schema has its own schema_migrations table. Instead of
+ * one connection per tenant, a few connections are borrowed once and
+ * each connection walks through tenants by switching its
+ * search_path, so every unqualified name in the scripts and in the
+ * history table resolves inside the tenant schema.
+ *
+ * Steps:
+ * 1. Resolve tenant schemas (names, or LIKE patterns such as tenant_%)
+ * 2. Acquire the migration lock on a coordinator connection
+ * 3. Read the applied versions of all tenants with catalog-wide
+ *    UNION ALL queries instead of one query per tenant
+ * 4. Load and hash the scripts once
+ * 5. Migrate tenants in parallel, one connection per worker
+ *
+ * A failing tenant does not stop the others; the run fails at the end
+ * if any tenant failed. A worker whose connection breaks reconnects
+ * before taking the next tenant, and stops if it cannot.
+ *
+ * Note: the search_path is set to the tenant schema only. Objects in
+ * other schemas (e.g. extension functions in public) must be
+ * schema-qualified in the scripts.
+ */
+public class PostgresTenantMigrator {
+
+    /** Tenant tables read per UNION ALL query, to keep statements reasonable */
+    private static final int SCHEMAS_PER_QUERY = 1000;
+
+    /** Rows per round trip when reading the history tables */
+    private static final int FETCH_SIZE = 5000;
+
+    /** Wait of the connection check after a failed tenant */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final DatabaseConnector connector;
+    private final DbConfig config;
+    private final ScriptLoader loader;
+    private final FailureStrategy strategy;
+    private final int parallelism;
+    private final ExecutorOptions options;
+    private final long lockTimeoutMillis;
+
+    /** Receives the results of all tenants, or null */
+    private RunReport report;
+
+    /**
+     * @param connector   Source of connections, typically a PooledConnector
+     * @param config      Connection settings of the database holding the tenants
+     * @param loader      Loader of the script set applied to every tenant
+     * @param strategy    Failure strategy applied within each tenant
+     * @param parallelism       Number of connections, i.e. tenants migrated at once
+     * @param options           Settings applied to every executor
+     * @param lockTimeoutMillis Maximum wait for the migration lock
+     */
+    public PostgresTenantMigrator(DatabaseConnector connector, DbConfig config, ScriptLoader loader,
+                                  FailureStrategy strategy, int parallelism, ExecutorOptions options,
+                                  long lockTimeoutMillis) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.connector = connector;
+        this.config = config;
+        this.loader = loader;
+        this.strategy = strategy;
+        this.parallelism = parallelism;
+        this.options = options;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+    }
+
+    /**
+     * Adds the results of every tenant, with their schema, to one report.
+     */
+    public void setReport(RunReport report) {
+        this.report = report;
+    }
+
+    /**
+     * Migrates every tenant matching the selectors and prints a summary.
+     *
+     * @param selectors Schema names or LIKE patterns (containing "%")
+     * @throws IllegalStateException when at least one tenant failed
+     * @throws Exception             when the tenants or scripts cannot be read
+     */
+    public void migrate(List<String> selectors) throws Exception {
+        List<TenantResult> results;
+
+        try (Connection coordinator = connector.connect(config)) {
+
+            List<String> tenants = resolveTenants(coordinator, selectors);
+            if (tenants.isEmpty()) {
+                throw new IllegalArgumentException("No tenant schema matches " + selectors);
+            }
+
+            // A session advisory lock: needs no table, so tenants without history tables can start
+            MigrationLock lock = new PostgresMigrationLock(coordinator, lockTimeoutMillis);
+            System.out.println("Acquiring migration lock...");
+            long lockStart = System.nanoTime();
+            try {
+                lock.acquire();
+            } finally {
+                if (report != null) {
+                    report.recordLockWait(System.nanoTime() - lockStart);
+                }
+            }
+            try {
+                System.out.println("Reading migration history of " + tenants.size() + " tenant(s)...");
+                Map<String, AppliedVersionIndex> history = readHistory(coordinator, tenants);
+
+                System.out.println("Loading migration scripts...");
+                List<MigrationScript> scripts = loader.loadScripts();
+                loader.preload(scripts);
+
+                results = migrateAll(tenants, history, scripts);
+            } finally {
+                System.out.println("Releasing migration lock...");
+                lock.release();
+            }
+        }
+
+        printSummary(results);
+
+        long failed = results.stream().filter(r -> r.error() != null).count();
+        if (failed > 0) {
+            throw new IllegalStateException(failed + " of " + results.size() + " tenant(s) failed");
+        }
+    }
+
+    // ---------------------------
+    // Tenant discovery and history
+    // ---------------------------
+
+    /**
+     * Expands LIKE patterns against pg_namespace; plain names are kept
+     * as given. The result is sorted and free of duplicates.
+     */
+    private static List<String> resolveTenants(Connection connection, List<String> selectors) throws SQLException {
+        Set<String> tenants = new LinkedHashSet<>();
+
+        try (PreparedStatement ps = connection.prepareStatement("""
+                SELECT nspname FROM pg_namespace
+                WHERE nspname LIKE ?
+                  AND nspname NOT LIKE 'pg\\_%'
+                  AND nspname <> 'information_schema'
+                ORDER BY nspname
+                """)) {
+            for (String selector : selectors) {
+                if (!selector.contains("%")) {
+                    tenants.add(selector);
+                    continue;
+                }
+                ps.setString(1, selector);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        tenants.add(rs.getString(1));
+                    }
+                }
+            }
+        }
+
+        List<String> sorted = new ArrayList<>(tenants);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Reads the applied versions of all tenants.
+     *
+     * One catalog query finds the tenants whose history table exists
+     * and carries the current infrastructure marker; their tables are
+     * then read together with UNION ALL, keyed by tableoid. Tenants
+     * missing from the result take the regular per-schema path, which
+     * creates or upgrades their tables.
+     *
+     * @return Applied versions per tenant, for up-to-date tenants only
+     */
+    private static Map<String, AppliedVersionIndex> readHistory(Connection connection, List<String> tenants)
+            throws SQLException {
+
+        // Table oid -> tenant schema
+        Map<Long, String> tables = new HashMap<>();
+
+        try (PreparedStatement ps = connection.prepareStatement("""
+                SELECT c.oid, n.nspname, obj_description(c.oid, 'pg_class')
+                FROM pg_class c
+                JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE c.relname = 'schema_migrations'
+                  AND c.relkind IN ('r', 'p')
+                  AND n.nspname = ANY (?)
+                """)) {
+            ps.setArray(1, connection.createArrayOf("text", tenants.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (InfrastructureVersion.parse(rs.getString(3)) == InfrastructureVersion.CURRENT) {
+                        tables.put(rs.getLong(1), rs.getString(2));
+                    }
+                }
+            }
+        }
+
+        Map<String, AppliedVersionIndex.Builder> builders = new HashMap<>();
+        for (String tenant : tables.values()) {
+            builders.put(tenant, AppliedVersionIndex.builder());
+        }
+
+        List<String> schemas = new ArrayList<>(tables.values());
+        for (int from = 0; from < schemas.size(); from += SCHEMAS_PER_QUERY) {
+            List<String> chunk = schemas.subList(from, Math.min(from + SCHEMAS_PER_QUERY, schemas.size()));
+            readHistoryChunk(connection, chunk, tables, builders);
+        }
+
+        Map<String, AppliedVersionIndex> history = new HashMap<>();
+        builders.forEach((tenant, builder) -> history.put(tenant, builder.build()));
+        return history;
+    }
+
+    private static void readHistoryChunk(Connection connection, List<String> schemas, Map<Long, String> tables,
+                                         Map<String, AppliedVersionIndex.Builder> builders) throws SQLException {
+        StringBuilder sql = new StringBuilder();
+        for (String schema : schemas) {
+            if (!sql.isEmpty()) {
+                sql.append("\nUNION ALL\n");
+            }
+            sql.append("SELECT tableoid::bigint, version FROM ")
+                    .append(quoteIdentifier(schema))
+                    .append(".schema_migrations");
+        }
+
+        // The driver only honours the fetch size inside a transaction
+        boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery(sql.toString())) {
+                while (rs.next()) {
+                    builders.get(tables.get(rs.getLong(1))).add(rs.getString(2));
+                }
+            }
+        } finally {
+            if (autoCommit) {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static String quoteIdentifier(String name) {
+        return "\"" + name.replace("\"", "\"\"") + "\"";
+    }
+
+    // ---------------------------
+    // Parallel migration
+    // ---------------------------
+
+    /**
+     * Starts one worker per connection; workers take tenants from a
+     * shared queue until it is empty.
+     */
+    private List<TenantResult> migrateAll(List<String> tenants, Map<String, AppliedVersionIndex> history,
+                                          List<MigrationScript> scripts) {
+        Queue<String> queue = new ConcurrentLinkedQueue<>(tenants);
+        List<TenantResult> results = Collections.synchronizedList(new ArrayList<>());
+        int workers = Math.min(parallelism, tenants.size());
+
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < workers; i++) {
+                threads.submit(() -> work(queue, history, scripts, results));
+            }
+        }
+
+        // Left over only when no worker could connect
+        String tenant;
+        while ((tenant = queue.poll()) != null) {
+            results.add(new TenantResult(tenant, 0, 0, new IllegalStateException("not migrated: no connection")));
+        }
+
+        List<TenantResult> sorted = new ArrayList<>(results);
+        sorted.sort((a, b) -> a.tenant().compareTo(b.tenant()));
+        return sorted;
+    }
+
+    /**
+     * Takes tenants from the queue until it is empty. After a failed
+     * tenant the connection is checked; a broken one is replaced, so
+     * it does not fail every remaining tenant. When no new connection
+     * can be made the worker stops and leaves the queue to the others.
+     */
+    private void work(Queue<String> queue, Map<String, AppliedVersionIndex> history,
+                      List<MigrationScript> scripts, List<TenantResult> results) {
+        Connection connection = null;
+        try {
+            connection = connector.connect(config);
+            PostgresScriptExecutor executor = createExecutor(connection);
+
+            String tenant;
+            while ((tenant = queue.poll()) != null) {
+                TenantResult result = migrateTenant(connection, executor, tenant, history.get(tenant), scripts);
+                results.add(result);
+
+                if (result.error() != null && !connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    System.out.println("Tenant worker lost its connection, reconnecting...");
+                    closeQuietly(connection);
+                    connection = null;
+                    connection = connector.connect(config);
+                    executor = createExecutor(connection);
+                }
+            }
+
+        } catch (Exception e) {
+            System.out.println("Tenant worker stopped: " + e.getMessage());
+        } finally {
+            if (connection != null) {
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    private PostgresScriptExecutor createExecutor(Connection connection) {
+        PostgresScriptExecutor executor = new PostgresScriptExecutor(connection);
+        executor.configure(options);
+        return executor;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    /**
+     * Switches the connection to the tenant schema and applies its
+     * pending scripts. Never throws: failures are returned in the result.
+     */
+    private TenantResult migrateTenant(Connection connection, PostgresScriptExecutor executor, String tenant,
+                                       AppliedVersionIndex applied, List<MigrationScript> scripts) {
+        long start = System.nanoTime();
+
+        try {
+            connection.setSchema(tenant);
+
+            try (DbVersionRepository repository = applied != null
+                    ? new PostgresDbVersionRepository(connection, applied)
+                    : new PostgresDbVersionRepository(connection)) {
+
+                MigrationService service = new MigrationService(loader, repository, executor);
+                service.setReport(report, tenant);
+                int count = service.migrate(connection, strategy,
+                        scripts.stream().map(MigrationScript::copy).toList());
+
+                return new TenantResult(tenant, count, elapsedMillis(start), null);
+            }
+
+        } catch (Exception e) {
+            System.out.println("[" + tenant + "] Migration failed: " + e.getMessage());
+            return new TenantResult(tenant, 0, elapsedMillis(start), e);
+        }
+    }
+
+    private static void printSummary(List<TenantResult> results) {
+        int applied = 0;
+        List<TenantResult> failures = new ArrayList<>();
+        for (TenantResult result : results) {
+            applied += result.applied();
+            if (result.error() != null) {
+                failures.add(result);
+            }
+        }
+
+        System.out.println();
+        System.out.println("Tenant summary: " + results.size() + " tenant(s), "
+                + applied + " script(s) applied, " + failures.size() + " failed");
+        for (TenantResult failure : failures) {
+            System.out.println("  FAILED " + failure.tenant() + " (" + failure.millis() + " ms) "
+                    + failure.error().getMessage());
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Outcome of one tenant.
+     *
+     * @param tenant  Tenant schema
+     * @param applied Number of scripts applied
+     * @param millis  Time spent on the tenant
+     * @param error   Failure, or null on success
+     */
+    private record TenantResult(String tenant, int applied, long millis, Exception error) {
+    }
+}
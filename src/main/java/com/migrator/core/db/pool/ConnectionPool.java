@@ -0,0 +1,499 @@
+package com.migrator.core.db.pool;
+
+import com.migrator.core.db.DatabaseConnector;
+import com.migrator.model.DbConfig;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small bounded pool of connections to one database.
+ *
+ * Features:
+ * ---------
+ * - Bounded: at most maxSize connections are borrowed at once; borrowers
+ *   wait up to a timeout for a free one
+ * - Validation on borrow: a connection idle for longer than
+ *   VALIDATE_AFTER_MILLIS is checked with isValid() first
+ * - Prepared-statement cache per connection: prepareStatement(sql)
+ *   returns a cached statement, and closing it keeps it open for the
+ *   next borrower with its settings restored (LRU, closed when evicted)
+ * - Fast reset on return: only session state changed through the
+ *   borrowed handle (auto-commit, isolation, read-only, schema, catalog)
+ *   is restored, and open transactions are rolled back
+ * - Metrics: acquire wait time and utilization, see {@link PoolMetrics}
+ *
+ * Borrowers get a proxy; close() returns the connection to the pool and
+ * makes the proxy unusable.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /** Idle time after which a connection is validated before reuse */
+    private static final long VALIDATE_AFTER_MILLIS = 1000;
+
+    /** Seconds allowed for Connection.isValid */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DatabaseConnector connector;
+    private final DbConfig config;
+    private final int maxSize;
+    private final int statementCacheSize;
+    private final long timeoutMillis;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private volatile boolean closed;
+
+    // Metrics
+    private final long createdAt = System.nanoTime();
+    private final AtomicInteger open = new AtomicInteger();
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+
+    /**
+     * @param connector          Opens the physical connections
+     * @param config             Database to connect to
+     * @param maxSize            Maximum number of connections
+     * @param statementCacheSize Prepared statements kept per connection (0 disables caching)
+     * @param timeoutMillis      Maximum wait for a free connection
+     */
+    public ConnectionPool(DatabaseConnector connector, DbConfig config, int maxSize,
+                          int statementCacheSize, long timeoutMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1, got " + maxSize);
+        }
+        this.connector = connector;
+        this.config = config;
+        this.maxSize = maxSize;
+        this.statementCacheSize = statementCacheSize;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Borrows a connection, opening a new one when none is idle.
+     *
+     * @return Connection handle; close() returns it to the pool
+     * @throws SQLException when no connection frees up in time or none can be opened
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + timeoutMillis
+                        + " ms waiting for a connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        long waited = System.nanoTime() - start;
+        acquisitions.increment();
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = openConnection();
+            }
+            pooled.borrowedAt = System.nanoTime();
+            return pooled.handle();
+
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Snapshot of the pool counters
+     */
+    public PoolMetrics metrics() {
+        long acquired = acquisitions.sum();
+        long elapsed = Math.max(1, System.nanoTime() - createdAt);
+
+        return new PoolMetrics(
+                maxSize,
+                open.get(),
+                maxSize - permits.availablePermits(),
+                acquired,
+                acquired == 0 ? 0 : waitNanos.sum() / acquired / 1_000_000.0,
+                maxWaitNanos.get() / 1_000_000.0,
+                validationFailures.sum(),
+                (double) busyNanos.sum() / ((double) elapsed * maxSize)
+        );
+    }
+
+    /**
+     * Closes idle connections. Borrowed connections are closed when
+     * they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (idle) {
+            for (PooledConnection pooled : idle) {
+                pooled.closePhysical();
+            }
+            idle.clear();
+        }
+    }
+
+    // ---------------------------
+    // Borrow / return
+    // ---------------------------
+
+    private PooledConnection takeValidIdle() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                return null;
+            }
+
+            long idleMillis = (System.nanoTime() - pooled.returnedAt) / 1_000_000;
+            if (idleMillis < VALIDATE_AFTER_MILLIS || pooled.isValid()) {
+                return pooled;
+            }
+
+            validationFailures.increment();
+            pooled.closePhysical();
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection physical;
+        try {
+            physical = connector.connect(config);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("Failed to open connection to " + config.host() + "/" + config.database(), e);
+        }
+        open.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    /**
+     * Called when a borrower closes its handle. Connections that cannot
+     * be reset are dropped instead of reused.
+     */
+    private void giveBack(PooledConnection pooled, Handle handle) {
+        busyNanos.add(System.nanoTime() - pooled.borrowedAt);
+
+        try {
+            if (closed || !pooled.reset(handle)) {
+                pooled.closePhysical();
+            } else {
+                pooled.returnedAt = System.nanoTime();
+                synchronized (idle) {
+                    // Most recently used first: keeps the hot set small
+                    idle.addFirst(pooled);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    // ---------------------------
+    // Pooled connection
+    // ---------------------------
+
+    private class PooledConnection {
+
+        private final Connection physical;
+        private final Map<String, PreparedStatement> statements;
+
+        private final boolean initialAutoCommit;
+        private final int initialIsolation;
+        private final boolean initialReadOnly;
+        private final String initialSchema;
+        private final String initialCatalog;
+
+        private long borrowedAt;
+        private long returnedAt;
+
+        PooledConnection(Connection physical) throws SQLException {
+            this.physical = physical;
+            this.initialAutoCommit = physical.getAutoCommit();
+            this.initialIsolation = physical.getTransactionIsolation();
+            this.initialReadOnly = physical.isReadOnly();
+            this.initialSchema = physical.getSchema();
+            this.initialCatalog = physical.getCatalog();
+
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= statementCacheSize) {
+                        return false;
+                    }
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+            };
+        }
+
+        Connection handle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+
+        /**
+         * @return Cached statement for the SQL, prepared on first use
+         */
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = physical.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        boolean isValid() {
+            try {
+                return physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Restores the session state the borrower changed.
+         *
+         * @return False when the connection is broken
+         */
+        boolean reset(Handle handle) {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                }
+                if (physical.getAutoCommit() != initialAutoCommit) {
+                    physical.setAutoCommit(initialAutoCommit);
+                }
+                if (handle.isolationChanged) {
+                    physical.setTransactionIsolation(initialIsolation);
+                }
+                if (handle.readOnlyChanged) {
+                    physical.setReadOnly(initialReadOnly);
+                }
+                if (handle.schemaChanged) {
+                    physical.setSchema(initialSchema);
+                }
+                if (handle.catalogChanged) {
+                    physical.setCatalog(initialCatalog);
+                }
+                physical.clearWarnings();
+                return true;
+
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            for (PreparedStatement statement : statements.values()) {
+                closeQuietly(statement);
+            }
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+            } finally {
+                open.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Borrower view of a pooled connection. Tracks session changes and
+     * serves prepareStatement(sql) from the cache.
+     */
+    private class Handle implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        private boolean isolationChanged;
+        private boolean readOnlyChanged;
+        private boolean schemaChanged;
+        private boolean catalogChanged;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            switch (name) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        giveBack(pooled, this);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || pooled.physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled[" + pooled.physical + "]";
+                }
+                default -> {
+                }
+            }
+
+            if (returned) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+
+            switch (name) {
+                case "setTransactionIsolation" -> isolationChanged = true;
+                case "setReadOnly" -> readOnlyChanged = true;
+                case "setSchema" -> schemaChanged = true;
+                case "setCatalog" -> catalogChanged = true;
+                default -> {
+                }
+            }
+
+            if (name.equals("prepareStatement") && args.length == 1 && statementCacheSize > 0) {
+                return Proxy.newProxyInstance(
+                        PreparedStatement.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class},
+                        new CachedStatement(pooled.prepare((String) args[0]), (Connection) proxy));
+            }
+
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Borrower view of a cached statement. close() clears it for reuse
+     * and restores the settings the borrower changed, so the next
+     * borrower starts with the driver defaults; getConnection() returns
+     * the pooled handle, never the physical connection.
+     */
+    private static final class CachedStatement implements InvocationHandler {
+
+        /** Statement settings restored on close, by setter name */
+        private static final Map<String, String> GETTERS = Map.of(
+                "setFetchSize", "getFetchSize",
+                "setFetchDirection", "getFetchDirection",
+                "setMaxRows", "getMaxRows",
+                "setLargeMaxRows", "getLargeMaxRows",
+                "setMaxFieldSize", "getMaxFieldSize",
+                "setQueryTimeout", "getQueryTimeout",
+                "setPoolable", "isPoolable");
+
+        private final PreparedStatement statement;
+        private final Connection handle;
+
+        /** Value of each setting before the borrower first changed it */
+        private final Map<Method, Object> initial = new LinkedHashMap<>();
+        private boolean closed;
+
+        CachedStatement(PreparedStatement statement, Connection handle) {
+            this.statement = statement;
+            this.handle = handle;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            switch (name) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        statement.clearParameters();
+                        statement.clearBatch();
+                        statement.clearWarnings();
+                        for (Map.Entry<Method, Object> setting : initial.entrySet()) {
+                            setting.getKey().invoke(statement, setting.getValue());
+                        }
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed || statement.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                }
+            }
+
+            if (closed) {
+                throw new SQLException("Statement has been closed");
+            }
+            if (name.equals("getConnection")) {
+                return handle;
+            }
+
+            try {
+                String getter = GETTERS.get(name);
+                if (getter != null && !initial.containsKey(method)) {
+                    initial.put(method, Statement.class.getMethod(getter).invoke(statement));
+                }
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
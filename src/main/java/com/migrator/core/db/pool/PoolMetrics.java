@@ -0,0 +1,32 @@
+package com.migrator.core.db.pool;
+
+/**
+ * Counters of a {@link ConnectionPool}.
+ *
+ * @param maxSize            Configured maximum number of connections
+ * @param open               Physical connections currently open
+ * @param active             Connections currently borrowed
+ * @param acquisitions       Successful borrows since the pool was created
+ * @param avgWaitMillis      Average time a borrower waited for a free connection
+ * @param maxWaitMillis      Longest wait for a free connection
+ * @param validationFailures Idle connections found broken on borrow
+ * @param utilization        Share of the pool capacity spent borrowed (0..1)
+ */
+public record PoolMetrics(
+        int maxSize,
+        int open,
+        int active,
+        long acquisitions,
+        double avgWaitMillis,
+        double maxWaitMillis,
+        long validationFailures,
+        double utilization
+) {
+
+    @Override
+    public String toString() {
+        return "size=%d open=%d active=%d acquisitions=%d wait(avg=%.1f ms, max=%.1f ms) invalid=%d utilization=%.0f%%"
+                .formatted(maxSize, open, active, acquisitions, avgWaitMillis, maxWaitMillis,
+                        validationFailures, utilization * 100);
+    }
+}
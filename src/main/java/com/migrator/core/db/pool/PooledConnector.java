@@ -0,0 +1,72 @@
+package com.migrator.core.db.pool;
+
+import com.migrator.core.db.DatabaseConnector;
+import com.migrator.model.DbConfig;
+
+import java.sql.Connection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DatabaseConnector that hands out pooled connections.
+ *
+ * Wraps another connector; one {@link ConnectionPool} is created per
+ * distinct DbConfig. Code written against DatabaseConnector does not
+ * change: connect() borrows, and closing the connection returns it.
+ *
+ * Usage:
+ *   try (PooledConnector pooled = new PooledConnector(connector, 8, 32, 30_000)) {
+ *       try (Connection connection = pooled.connect(config)) {
+ *           ...
+ *       }
+ *   }
+ */
+public class PooledConnector implements DatabaseConnector, AutoCloseable {
+
+    private final DatabaseConnector connector;
+    private final int maxSize;
+    private final int statementCacheSize;
+    private final long timeoutMillis;
+
+    private final Map<DbConfig, ConnectionPool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * @param connector          Opens the physical connections
+     * @param maxSize            Maximum connections per database
+     * @param statementCacheSize Prepared statements cached per connection
+     * @param timeoutMillis      Maximum wait for a free connection
+     */
+    public PooledConnector(DatabaseConnector connector, int maxSize, int statementCacheSize, long timeoutMillis) {
+        this.connector = connector;
+        this.maxSize = maxSize;
+        this.statementCacheSize = statementCacheSize;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public Connection connect(DbConfig config) throws Exception {
+        return pool(config).borrow();
+    }
+
+    /**
+     * @return Pool of the given database, created on first use
+     */
+    public ConnectionPool pool(DbConfig config) {
+        return pools.computeIfAbsent(config,
+                c -> new ConnectionPool(connector, c, maxSize, statementCacheSize, timeoutMillis));
+    }
+
+    /**
+     * Prints the metrics of every pool and closes them.
+     */
+    @Override
+    public void close() {
+        for (Map.Entry<DbConfig, ConnectionPool> entry : pools.entrySet()) {
+            DbConfig config = entry.getKey();
+            System.out.println("Connection pool " + config.host() + ":" + config.port() + "/" + config.database()
+                    + ": " + entry.getValue().metrics());
+            entry.getValue().close();
+        }
+        pools.clear();
+    }
+}
@@ -0,0 +1,25 @@
+package com.migrator.core.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Data file streamed into a table by a bulk-load migration.
+ */
+@Name("com.migrator.BulkLoad")
+@Label("Bulk Load")
+@Category({"Migrator", "Execute"})
+public class BulkLoadEvent extends jdk.jfr.Event {
+
+    @Label("Version")
+    public String version;
+
+    @Label("Data File Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Rows")
+    public long rows;
+}
@@ -0,0 +1,20 @@
+package com.migrator.core.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Commit of a migration transaction (script and history row).
+ */
+@Name("com.migrator.Commit")
+@Label("Commit")
+@Category({"Migrator", "Execute"})
+public class CommitEvent extends jdk.jfr.Event {
+
+    @Label("Version")
+    public String version;
+
+    @Label("Attempt")
+    public int attempt;
+}
@@ -0,0 +1,22 @@
+package com.migrator.core.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * INSERT of a schema_migrations row.
+ */
+@Name("com.migrator.HistoryWrite")
+@Label("History Write")
+@Category({"Migrator", "History"})
+public class HistoryWriteEvent extends jdk.jfr.Event {
+
+    @Label("Version")
+    public String version;
+
+    @Label("Script Size")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,23 @@
+package com.migrator.core.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Wait for the migration lock.
+ */
+@Name("com.migrator.LockAcquire")
+@Label("Lock Acquire")
+@Category({"Migrator", "Lock"})
+@Description("Waits for the database-wide migration lock")
+public class LockAcquireEvent extends jdk.jfr.Event {
+
+    @Label("Database Type")
+    public String databaseType;
+
+    @Label("Acquired")
+    @Description("False when the wait timed out or failed")
+    public boolean acquired;
+}
@@ -0,0 +1,28 @@
+package com.migrator.core.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Checksum of one migration file.
+ */
+@Name("com.migrator.ScriptHash")
+@Label("Script Hash")
+@Category({"Migrator", "Scripts"})
+@Description("Reads and hashes one migration file, or finds its checksum in the manifest")
+public class ScriptHashEvent extends jdk.jfr.Event {
+
+    @Label("Version")
+    public String version;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Cached")
+    @Description("Checksum came from the loader manifest without reading the file")
+    public boolean cached;
+}
@@ -0,0 +1,31 @@
+package com.migrator.core.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Listing (and in eager mode reading and hashing) of the migration directory.
+ */
+@Name("com.migrator.ScriptLoad")
+@Label("Script Load")
+@Category({"Migrator", "Scripts"})
+@Description("Lists the migration directory; eager mode also reads and hashes every file")
+public class ScriptLoadEvent extends jdk.jfr.Event {
+
+    @Label("Directory")
+    public String directory;
+
+    @Label("Scripts")
+    public int scripts;
+
+    @Label("Total Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Eager")
+    @Description("File content was read and hashed during the load")
+    public boolean eager;
+}
@@ -0,0 +1,38 @@
+package com.migrator.core.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One round trip of a migration script: a statement or a JDBC batch.
+ */
+@Name("com.migrator.StatementExecute")
+@Label("Statement Execute")
+@Category({"Migrator", "Execute"})
+@Description("Executes one statement, or one JDBC batch of statements, of a migration script")
+public class StatementExecuteEvent extends jdk.jfr.Event {
+
+    @Label("Version")
+    public String version;
+
+    @Label("Statement Index")
+    @Description("One-based position of the (first) statement in the script")
+    public int statementIndex;
+
+    @Label("Line")
+    public int line;
+
+    @Label("Statements")
+    @Description("Statements sent in this round trip; more than 1 for a JDBC batch")
+    public int statements;
+
+    @Label("SQL Size")
+    @DataAmount
+    public long sqlBytes;
+
+    @Label("Rows Affected")
+    public long rows;
+}
@@ -0,0 +1,166 @@
+package com.migrator.core.sql;
+
+import com.migrator.model.MigrationKind;
+import com.migrator.model.MigrationScript;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options declared in the comment header of a migration script.
+ *
+ * Only the leading comment lines are read; the header ends at the
+ * first line that is neither blank nor a comment. Directives look like:
+ *
+ *   -- migrator:depends-on=202501100930,202501120101
+ *   -- migrator:group=reporting
+ *   -- migrator:transactional=false
+ *   -- migrator:backfill-key=orders.id
+ *   -- migrator:chunk-size=5000
+ *
+ * Bulk-load descriptors use "#" comments instead of "--".
+ *
+ * Supported keys:
+ * - depends-on: versions that must be applied first
+ * - group:      scripts of one group run one after another; different
+ *               groups may run side by side
+ * - transactional: false runs the statements in autocommit mode, for
+ *               statements that cannot run in a transaction block
+ *               (e.g. CREATE INDEX CONCURRENTLY)
+ * - backfill-key: table.column of an integer key; makes the script a
+ *               backfill that runs once per key range, using the
+ *               :from (inclusive) and :to (exclusive) parameters
+ * - chunk-size: keys per backfill chunk (default 10000)
+ *
+ * Unknown keys are rejected so a typo does not silently change how a
+ * script runs.
+ */
+public record ScriptDirectives(Map<String, String> values) {
+
+    public static final ScriptDirectives NONE = new ScriptDirectives(Map.of());
+
+    private static final String PREFIX = "migrator:";
+
+    private static final List<String> KEYS = List.of("depends-on", "group", "transactional", "backfill-key", "chunk-size");
+
+    private static final long DEFAULT_CHUNK_SIZE = 10_000;
+
+    /**
+     * Reads the directives from the header of the script.
+     *
+     * @throws IllegalArgumentException on an unknown or malformed directive
+     */
+    public static ScriptDirectives read(MigrationScript script) {
+        String comment = script.getKind() == MigrationKind.BULK_LOAD ? "#" : "--";
+        Map<String, String> values = new HashMap<>();
+
+        try (BufferedReader reader = new BufferedReader(script.openReader())) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String text = line.strip();
+                if (text.isEmpty()) {
+                    continue;
+                }
+                if (!text.startsWith(comment)) {
+                    break;
+                }
+
+                String body = text.substring(comment.length()).strip();
+                if (!body.startsWith(PREFIX)) {
+                    continue;
+                }
+
+                String[] parts = body.substring(PREFIX.length()).split("=", 2);
+                String key = parts[0].strip().toLowerCase();
+                if (parts.length != 2 || !KEYS.contains(key)) {
+                    throw new IllegalArgumentException("Invalid directive in version "
+                            + script.getVersion() + ": " + text + " (supported: " + String.join(", ", KEYS) + ")");
+                }
+                values.put(key, parts[1].strip());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read header of version " + script.getVersion(), e);
+        }
+
+        return values.isEmpty() ? NONE : new ScriptDirectives(Map.copyOf(values));
+    }
+
+    /**
+     * @return Versions listed in depends-on, empty when not declared
+     */
+    public List<String> dependsOn() {
+        String value = values.get("depends-on");
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::strip)
+                .filter(v -> !v.isEmpty())
+                .toList();
+    }
+
+    /**
+     * @return Group name, or null when not declared
+     */
+    public String group() {
+        return values.get("group");
+    }
+
+    /**
+     * @return False when the script asks to run outside a transaction
+     * @throws IllegalArgumentException when the value is not true or false
+     */
+    public boolean isTransactional() {
+        String value = values.get("transactional");
+        if (value == null || value.equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (value.equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Invalid value for transactional: " + value + " (expected true or false)");
+    }
+
+    /**
+     * @return table.column driving a backfill, or null for a regular script
+     */
+    public String backfillKey() {
+        return values.get("backfill-key");
+    }
+
+    public boolean isBackfill() {
+        return values.containsKey("backfill-key");
+    }
+
+    /**
+     * @return Keys per backfill chunk
+     * @throws IllegalArgumentException when the value is not a positive number
+     */
+    public long chunkSize() {
+        String value = values.get("chunk-size");
+        if (value == null) {
+            return DEFAULT_CHUNK_SIZE;
+        }
+        try {
+            long size = Long.parseLong(value);
+            if (size > 0) {
+                return size;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Invalid value for chunk-size: " + value + " (expected a positive number)");
+    }
+
+    /**
+     * @return True when the script declares its own ordering and does
+     *         not need to wait for every earlier script
+     */
+    public boolean isIndependent() {
+        return values.containsKey("depends-on") || values.containsKey("group");
+    }
+}
@@ -0,0 +1,28 @@
+package com.migrator.core.sql;
+
+import com.migrator.model.DatabaseType;
+
+/**
+ * Lexical rules that differ between databases.
+ *
+ * - POSTGRES: statements end with ";". Supports $tag$ dollar quoting,
+ *   E'' escape strings, nested block comments and BEGIN ATOMIC bodies.
+ * - MSSQL: batches end with a line containing only "GO". Supports
+ *   [bracketed] identifiers. Semicolons do not split batches.
+ * - ORACLE: statements end with ";" or a line containing only "/".
+ *   PL/SQL blocks (BEGIN, DECLARE, CREATE PROCEDURE, ...) only end
+ *   at "/". Supports q'[...]' alternative quoting.
+ */
+public enum SqlDialect {
+    POSTGRES,
+    MSSQL,
+    ORACLE;
+
+    public static SqlDialect of(DatabaseType type) {
+        return switch (type) {
+            case POSTGRES -> POSTGRES;
+            case MSSQL -> MSSQL;
+            case ORACLE -> ORACLE;
+        };
+    }
+}
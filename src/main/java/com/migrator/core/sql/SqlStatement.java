@@ -0,0 +1,15 @@
+package com.migrator.core.sql;
+
+/**
+ * A single statement (or MSSQL batch) produced by {@link SqlTokenizer}.
+ *
+ * @param sql   Statement text without its terminator
+ * @param index Zero-based position of the statement in the script
+ * @param line  One-based line in the script where the statement starts
+ */
+public record SqlStatement(
+        String sql,
+        int index,
+        int line
+) {
+}
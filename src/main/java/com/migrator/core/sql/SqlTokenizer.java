@@ -0,0 +1,497 @@
+package com.migrator.core.sql;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Splits a migration script into statements in a single pass.
+ *
+ * The tokenizer reads the script line by line and walks each line
+ * with a small state machine, so it understands:
+ * - single-quoted strings ('it''s'), E'' strings and q'[...]' quoting
+ * - double-quoted and [bracketed] identifiers
+ * - $$ / $tag$ dollar quoting
+ * - line (--) and block comments
+ * - PL/SQL blocks and BEGIN ATOMIC bodies that contain ";"
+ *
+ * Separators inside any of these never split a statement. Statements
+ * are produced lazily: only the statement being built is held in
+ * memory, never the whole script.
+ *
+ * Comments and blank lines before a statement are dropped, so the
+ * reported line is the line of its first token.
+ *
+ * Usage:
+ *   try (SqlTokenizer statements = new SqlTokenizer(reader, SqlDialect.POSTGRES)) {
+ *       while (statements.hasNext()) {
+ *           SqlStatement statement = statements.next();
+ *           ...
+ *       }
+ *   }
+ */
+public class SqlTokenizer implements Iterator<SqlStatement>, Closeable {
+
+    private enum State {
+        NORMAL,
+        SINGLE_QUOTE,
+        ESCAPE_QUOTE,
+        DOUBLE_QUOTE,
+        BRACKET,
+        BLOCK_COMMENT,
+        DOLLAR_QUOTE,
+        Q_QUOTE
+    }
+
+    /** Number of leading words kept per statement to detect PL/SQL blocks */
+    private static final int HEAD_WORDS = 8;
+
+    private static final Set<String> PLSQL_UNITS = Set.of(
+            "PROCEDURE", "FUNCTION", "PACKAGE", "TRIGGER", "TYPE", "LIBRARY"
+    );
+
+    private static final Set<String> CREATE_MODIFIERS = Set.of(
+            "OR", "REPLACE", "EDITIONABLE", "NONEDITIONABLE"
+    );
+
+    private final BufferedReader reader;
+    private final SqlDialect dialect;
+
+    /** Statements completed but not yet returned */
+    private final Deque<SqlStatement> ready = new ArrayDeque<>();
+
+    /** Text of the statement being built */
+    private final StringBuilder current = new StringBuilder();
+
+    /** First words of the statement being built (upper case) */
+    private final List<String> headWords = new ArrayList<>();
+
+    /** Word being read */
+    private final StringBuilder word = new StringBuilder();
+
+    private State state = State.NORMAL;
+    private int commentDepth;
+    private String dollarTag;
+    private char quoteClose;
+
+    private String lastWord;
+    private int atomicDepth;
+    private int caseDepth;
+
+    private boolean hasCode;
+    private int startLine;
+    private int lineNumber;
+    private int index;
+    private boolean eof;
+
+    /**
+     * @param reader  Script source; closed together with the tokenizer
+     * @param dialect Lexical rules of the target database
+     */
+    public SqlTokenizer(Reader reader, SqlDialect dialect) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        this.dialect = dialect;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (ready.isEmpty() && !eof) {
+                String line = reader.readLine();
+                if (line == null) {
+                    eof = true;
+                    flush();
+                } else {
+                    processLine(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read migration script", e);
+        }
+        return !ready.isEmpty();
+    }
+
+    @Override
+    public SqlStatement next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return ready.poll();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // ---------------------------
+    // Line processing
+    // ---------------------------
+
+    private void processLine(String line) {
+        lineNumber++;
+
+        if (state == State.NORMAL && isSeparatorLine(line)) {
+            flush();
+            return;
+        }
+
+        int i = 0;
+        int n = line.length();
+
+        while (i < n) {
+            char c = line.charAt(i);
+            char next = i + 1 < n ? line.charAt(i + 1) : 0;
+
+            switch (state) {
+                case NORMAL -> i = normal(line, i);
+
+                case SINGLE_QUOTE -> {
+                    current.append(c);
+                    if (c == '\'') {
+                        if (next == '\'') {
+                            current.append(next);
+                            i++;
+                        } else {
+                            state = State.NORMAL;
+                        }
+                    }
+                    i++;
+                }
+
+                case ESCAPE_QUOTE -> {
+                    current.append(c);
+                    if (c == '\\' && i + 1 < n) {
+                        current.append(next);
+                        i++;
+                    } else if (c == '\'') {
+                        if (next == '\'') {
+                            current.append(next);
+                            i++;
+                        } else {
+                            state = State.NORMAL;
+                        }
+                    }
+                    i++;
+                }
+
+                case DOUBLE_QUOTE -> {
+                    current.append(c);
+                    if (c == '"') {
+                        state = State.NORMAL;
+                    }
+                    i++;
+                }
+
+                case BRACKET -> {
+                    current.append(c);
+                    if (c == ']') {
+                        if (next == ']') {
+                            current.append(next);
+                            i++;
+                        } else {
+                            state = State.NORMAL;
+                        }
+                    }
+                    i++;
+                }
+
+                case BLOCK_COMMENT -> {
+                    if (c == '*' && next == '/') {
+                        appendComment("*/");
+                        i += 2;
+                        if (--commentDepth == 0) {
+                            state = State.NORMAL;
+                        }
+                    } else if (c == '/' && next == '*' && dialect != SqlDialect.ORACLE) {
+                        appendComment("/*");
+                        commentDepth++;
+                        i += 2;
+                    } else {
+                        appendComment(String.valueOf(c));
+                        i++;
+                    }
+                }
+
+                case DOLLAR_QUOTE -> {
+                    if (line.startsWith(dollarTag, i)) {
+                        current.append(dollarTag);
+                        i += dollarTag.length();
+                        state = State.NORMAL;
+                    } else {
+                        current.append(c);
+                        i++;
+                    }
+                }
+
+                case Q_QUOTE -> {
+                    current.append(c);
+                    if (c == quoteClose && next == '\'') {
+                        current.append(next);
+                        i++;
+                        state = State.NORMAL;
+                    }
+                    i++;
+                }
+            }
+        }
+
+        endWord();
+        if (hasCode) {
+            current.append('\n');
+        }
+    }
+
+    /**
+     * Handles one character outside of strings and comments.
+     *
+     * @return Index of the next character to process
+     */
+    private int normal(String line, int i) {
+        int n = line.length();
+        char c = line.charAt(i);
+        char next = i + 1 < n ? line.charAt(i + 1) : 0;
+
+        // Line comment: rest of the line
+        if (c == '-' && next == '-') {
+            endWord();
+            if (hasCode) {
+                current.append(line, i, n);
+            }
+            return n;
+        }
+
+        if (c == '/' && next == '*') {
+            endWord();
+            state = State.BLOCK_COMMENT;
+            commentDepth = 1;
+            appendComment("/*");
+            return i + 2;
+        }
+
+        if (c == '\'') {
+            String prefix = word.toString();
+            endWord();
+            markCode();
+            current.append(c);
+
+            if (dialect == SqlDialect.POSTGRES && prefix.equalsIgnoreCase("E")) {
+                state = State.ESCAPE_QUOTE;
+            } else if (dialect == SqlDialect.ORACLE && i + 1 < n
+                    && (prefix.equalsIgnoreCase("Q") || prefix.equalsIgnoreCase("NQ"))) {
+                quoteClose = closingDelimiter(next);
+                current.append(next);
+                state = State.Q_QUOTE;
+                return i + 2;
+            } else {
+                state = State.SINGLE_QUOTE;
+            }
+            return i + 1;
+        }
+
+        if (c == '"') {
+            endWord();
+            markCode();
+            current.append(c);
+            state = State.DOUBLE_QUOTE;
+            return i + 1;
+        }
+
+        if (c == '[' && dialect == SqlDialect.MSSQL) {
+            endWord();
+            markCode();
+            current.append(c);
+            state = State.BRACKET;
+            return i + 1;
+        }
+
+        if (c == '$' && dialect == SqlDialect.POSTGRES && word.isEmpty()) {
+            int end = dollarTagEnd(line, i);
+            if (end > 0) {
+                markCode();
+                dollarTag = line.substring(i, end);
+                current.append(dollarTag);
+                state = State.DOLLAR_QUOTE;
+                return end;
+            }
+        }
+
+        if (c == ';') {
+            endWord();
+            if (isStatementEnd()) {
+                flush();
+            } else {
+                markCode();
+                current.append(c);
+            }
+            return i + 1;
+        }
+
+        if (isWordChar(c)) {
+            markCode();
+            word.append(c);
+            current.append(c);
+            return i + 1;
+        }
+
+        endWord();
+        if (!Character.isWhitespace(c)) {
+            markCode();
+            current.append(c);
+        } else if (hasCode) {
+            current.append(c);
+        }
+        return i + 1;
+    }
+
+    // ---------------------------
+    // Dialect rules
+    // ---------------------------
+
+    /** MSSQL "GO" and Oracle "/" lines end the current statement */
+    private boolean isSeparatorLine(String line) {
+        return switch (dialect) {
+            case MSSQL -> line.strip().equalsIgnoreCase("GO");
+            case ORACLE -> line.strip().equals("/");
+            case POSTGRES -> false;
+        };
+    }
+
+    /** Decides whether a top-level ";" terminates the statement */
+    private boolean isStatementEnd() {
+        return switch (dialect) {
+            case POSTGRES -> atomicDepth == 0;
+            case MSSQL -> false;
+            case ORACLE -> !isPlsqlBlock();
+        };
+    }
+
+    /** PL/SQL blocks contain ";" and only end at a "/" line */
+    private boolean isPlsqlBlock() {
+        if (headWords.isEmpty()) {
+            return false;
+        }
+
+        String first = headWords.get(0);
+        if (first.equals("BEGIN") || first.equals("DECLARE")) {
+            return true;
+        }
+        if (!first.equals("CREATE")) {
+            return false;
+        }
+
+        for (int k = 1; k < headWords.size(); k++) {
+            String w = headWords.get(k);
+            if (!CREATE_MODIFIERS.contains(w)) {
+                return PLSQL_UNITS.contains(w);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the end index (exclusive) of a dollar-quote tag starting
+     * at i, or -1 when the "$" is not a tag (e.g. a $1 parameter).
+     */
+    private static int dollarTagEnd(String line, int i) {
+        int j = i + 1;
+        while (j < line.length() && line.charAt(j) != '$') {
+            char t = line.charAt(j);
+            boolean valid = Character.isLetter(t) || t == '_' || (j > i + 1 && Character.isDigit(t));
+            if (!valid) {
+                return -1;
+            }
+            j++;
+        }
+        return j < line.length() ? j + 1 : -1;
+    }
+
+    private static char closingDelimiter(char open) {
+        return switch (open) {
+            case '[' -> ']';
+            case '{' -> '}';
+            case '(' -> ')';
+            case '<' -> '>';
+            default -> open;
+        };
+    }
+
+    private boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || (c == '#' && dialect != SqlDialect.POSTGRES);
+    }
+
+    // ---------------------------
+    // Statement building
+    // ---------------------------
+
+    private void markCode() {
+        if (!hasCode) {
+            hasCode = true;
+            startLine = lineNumber;
+        }
+    }
+
+    private void appendComment(String text) {
+        if (hasCode) {
+            current.append(text);
+        }
+    }
+
+    /**
+     * Finishes the word being read and tracks the keywords needed for
+     * PL/SQL detection and Postgres BEGIN ATOMIC ... END bodies.
+     */
+    private void endWord() {
+        if (word.isEmpty()) {
+            return;
+        }
+
+        String w = word.toString().toUpperCase();
+        word.setLength(0);
+
+        if (headWords.size() < HEAD_WORDS) {
+            headWords.add(w);
+        }
+
+        if (dialect == SqlDialect.POSTGRES) {
+            if (w.equals("ATOMIC") && "BEGIN".equals(lastWord)) {
+                atomicDepth++;
+            } else if (atomicDepth > 0 && w.equals("CASE")) {
+                caseDepth++;
+            } else if (atomicDepth > 0 && w.equals("END")) {
+                if (caseDepth > 0) {
+                    caseDepth--;
+                } else {
+                    atomicDepth--;
+                }
+            }
+        }
+
+        lastWord = w;
+    }
+
+    /** Emits the current statement if it contains any code */
+    private void flush() {
+        endWord();
+
+        if (hasCode) {
+            ready.add(new SqlStatement(current.toString().strip(), index++, startLine));
+        }
+
+        current.setLength(0);
+        headWords.clear();
+        lastWord = null;
+        atomicDepth = 0;
+        caseDepth = 0;
+        hasCode = false;
+    }
+}
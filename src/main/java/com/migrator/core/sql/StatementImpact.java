@@ -0,0 +1,112 @@
+package com.migrator.core.sql;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rough classification of what a statement does to its table, used by
+ * the planner. Based on the statement text only, conservatively:
+ * when unsure between a scan and a rewrite, it says rewrite.
+ *
+ * Kinds:
+ * - DML:      touches rows; the database's plan gives the estimate
+ * - METADATA: catalog-only change (e.g. ADD COLUMN with a constant default)
+ * - SCAN:     reads the whole table (index build, constraint validation)
+ * - REWRITE:  copies the whole table (column type change, VACUUM FULL)
+ *
+ * @param kind         What the statement does
+ * @param table        Target table of DDL, or null
+ * @param blocksWrites True when writes to the table wait for the whole statement
+ */
+public record StatementImpact(Kind kind, String table, boolean blocksWrites) {
+
+    public enum Kind { DML, METADATA, SCAN, REWRITE }
+
+    private static final String NAME = "([\\w$.\"\\[\\]]+)";
+
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "^CREATE\\s+(UNIQUE\\s+)?((NON)?CLUSTERED\\s+)?(COLUMNSTORE\\s+)?INDEX\\s+(CONCURRENTLY\\s+)?"
+                    + "(IF\\s+NOT\\s+EXISTS\\s+)?(\\S+\\s+)?ON\\s+(ONLY\\s+)?" + NAME, Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern ALTER_TABLE = Pattern.compile(
+            "^ALTER\\s+TABLE\\s+(IF\\s+EXISTS\\s+)?(ONLY\\s+)?" + NAME + "\\s*(.*)$", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern REWRITE_TABLE = Pattern.compile(
+            "^(VACUUM\\s+(\\(\\s*)?FULL\\b[^\\w]*|CLUSTER\\s+|REFRESH\\s+MATERIALIZED\\s+VIEW\\s+(CONCURRENTLY\\s+)?)" + NAME, Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern TYPE_CHANGE = Pattern.compile("ALTER\\s+COLUMN\\s+\\S+\\s+(SET\\s+DATA\\s+)?TYPE\\b");
+    private static final Pattern SET_NOT_NULL = Pattern.compile("ALTER\\s+COLUMN\\s+\\S+\\s+SET\\s+NOT\\s+NULL");
+    private static final Pattern COLUMN_OPTION = Pattern.compile("ALTER\\s+COLUMN\\s+\\S+\\s+(SET|DROP|ADD)\\b");
+    private static final Pattern INDEX_CONSTRAINT = Pattern.compile("ADD\\s+(CONSTRAINT\\s+\\S+\\s+)?(PRIMARY\\s+KEY|UNIQUE)\\b");
+    private static final Pattern CHECKED_CONSTRAINT = Pattern.compile("ADD\\s+(CONSTRAINT\\s+\\S+\\s+)?(FOREIGN\\s+KEY|CHECK)\\b");
+    private static final Pattern NOT_VALIDATED = Pattern.compile("\\bNOT\\s+VALID\\b|\\bNOCHECK\\b|\\bNOVALIDATE\\b");
+    private static final Pattern MOVES_TABLE = Pattern.compile("\\bSET\\s+(LOGGED|UNLOGGED|TABLESPACE)\\b|\\bMOVE\\b");
+    private static final Pattern VOLATILE_DEFAULT = Pattern.compile(
+            "\\bDEFAULT\\b.*\\b(RANDOM|GEN_RANDOM_UUID|UUID_GENERATE_V[14]|CLOCK_TIMESTAMP|NEXTVAL|NEWID|SYS_GUID)\\s*\\(");
+
+    /** SQL Server ONLINE = ON, Oracle ONLINE */
+    private static final Pattern ONLINE = Pattern.compile("\\bONLINE\\s*=\\s*ON\\b|\\bONLINE\\b(?!\\s*=)");
+
+    private static final StatementImpact DML = new StatementImpact(Kind.DML, null, false);
+    private static final StatementImpact OTHER = new StatementImpact(Kind.METADATA, null, false);
+
+    /**
+     * @param sql One statement, as split by the tokenizer
+     */
+    public static StatementImpact of(String sql) {
+        // Names keep their case (quoted identifiers); keywords are matched on the upper-case copy
+        String text = sql.strip().replaceAll("\\s+", " ");
+        String upper = text.toUpperCase(Locale.ROOT);
+
+        if (upper.matches("^(INSERT|UPDATE|DELETE|MERGE|SELECT|WITH)\\b.*")) {
+            return DML;
+        }
+
+        Matcher index = CREATE_INDEX.matcher(text);
+        if (index.find()) {
+            boolean online = index.group(5) != null || ONLINE.matcher(upper).find();
+            return new StatementImpact(Kind.SCAN, index.group(9), !online);
+        }
+
+        Matcher rewrite = REWRITE_TABLE.matcher(text);
+        if (rewrite.find()) {
+            return new StatementImpact(Kind.REWRITE, rewrite.group(rewrite.groupCount()), rewrite.group(3) == null);
+        }
+
+        Matcher alter = ALTER_TABLE.matcher(text);
+        if (alter.find()) {
+            return new StatementImpact(alterKind(alter.group(4).toUpperCase(Locale.ROOT)), alter.group(3), true);
+        }
+
+        return OTHER;
+    }
+
+    private static Kind alterKind(String action) {
+        if (TYPE_CHANGE.matcher(action).find() || MOVES_TABLE.matcher(action).find()
+                || VOLATILE_DEFAULT.matcher(action).find()) {
+            return Kind.REWRITE;
+        }
+        if (SET_NOT_NULL.matcher(action).find() || INDEX_CONSTRAINT.matcher(action).find()) {
+            return Kind.SCAN;
+        }
+        if (CHECKED_CONSTRAINT.matcher(action).find()) {
+            return NOT_VALIDATED.matcher(action).find() ? Kind.METADATA : Kind.SCAN;
+        }
+        if (COLUMN_OPTION.matcher(action).find()) {
+            return Kind.METADATA;
+        }
+        // ALTER COLUMN x <type> (SQL Server) and MODIFY (Oracle) change the column type
+        if (action.startsWith("ALTER COLUMN") || action.startsWith("MODIFY")) {
+            return Kind.REWRITE;
+        }
+        return Kind.METADATA;
+    }
+
+    /**
+     * @return True when the statement reads or copies the whole table
+     */
+    public boolean isFullTable() {
+        return kind == Kind.SCAN || kind == Kind.REWRITE;
+    }
+}
@@ -1,14 +1,19 @@
 package com.migrator.factory;
 
 import com.migrator.core.db.DbVersionRepository;
+import com.migrator.core.db.StatementPlanner;
 import com.migrator.core.db.impl.mssql.MssqlDbVersionRepository;
 import com.migrator.core.db.impl.mssql.MssqlScriptExecutor;
+import com.migrator.core.db.impl.mssql.MssqlStatementPlanner;
 import com.migrator.core.db.impl.oracle.OracleDbVersionRepository;
 import com.migrator.core.db.impl.oracle.OracleScriptExecutor;
+import com.migrator.core.db.impl.oracle.OracleStatementPlanner;
 import com.migrator.core.db.impl.postgres.PostgresDbVersionRepository;
 import com.migrator.core.db.impl.postgres.PostgresScriptExecutor;
+import com.migrator.core.db.impl.postgres.PostgresStatementPlanner;
 import com.migrator.core.db.ScriptExecutor;
 import com.migrator.model.DatabaseType;
+import com.migrator.model.ExecutorOptions;
 
 import java.sql.Connection;
 
@@ -25,6 +30,19 @@ public class DatabaseComponentFactory {
         };
     }
 
+    /**
+     * Creates an executor with the command-line settings applied.
+     */
+    public static ScriptExecutor createExecutor(
+            DatabaseType type,
+            Connection connection,
+            ExecutorOptions options
+    ) {
+        ScriptExecutor executor = createExecutor(type, connection);
+        executor.configure(options);
+        return executor;
+    }
+
     public static DbVersionRepository createRepository(
             DatabaseType type,
             Connection connection
@@ -35,4 +53,30 @@ public class DatabaseComponentFactory {
             case ORACLE  -> new OracleDbVersionRepository(connection);
         };
     }
+
+    /**
+     * Repository for validate and plan runs: reads the history without
+     * creating or upgrading the migration tables, so it needs no lock.
+     */
+    public static DbVersionRepository createReadOnlyRepository(
+            DatabaseType type,
+            Connection connection
+    ) {
+        return switch (type) {
+            case POSTGRES -> new PostgresDbVersionRepository(connection, true);
+            case MSSQL   -> new MssqlDbVersionRepository(connection, true);
+            case ORACLE  -> new OracleDbVersionRepository(connection, true);
+        };
+    }
+
+    public static StatementPlanner createPlanner(
+            DatabaseType type,
+            Connection connection
+    ) {
+        return switch (type) {
+            case POSTGRES -> new PostgresStatementPlanner(connection);
+            case MSSQL   -> new MssqlStatementPlanner(connection);
+            case ORACLE  -> new OracleStatementPlanner(connection);
+        };
+    }
 }
@@ -10,10 +10,18 @@ import java.sql.Connection;
 public class MigrationLockFactory {
 
     public static MigrationLock create(String dbType, Connection connection) {
+        return create(dbType, connection, PostgresMigrationLock.DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param connection    Dedicated connection that holds the lock
+     * @param timeoutMillis Maximum wait for the lock
+     */
+    public static MigrationLock create(String dbType, Connection connection, long timeoutMillis) {
         return switch (dbType.toLowerCase()) {
-            case "postgres" -> new PostgresMigrationLock(connection);
-            case "mssql" -> new MssqlMigrationLock(connection);
-            case "oracle" -> new OracleMigrationLock(connection);
+            case "postgres" -> new PostgresMigrationLock(connection, timeoutMillis);
+            case "mssql" -> new MssqlMigrationLock(connection, timeoutMillis);
+            case "oracle" -> new OracleMigrationLock(connection, timeoutMillis);
             default -> throw new IllegalArgumentException(
                     "Unsupported database type: " + dbType
             );
@@ -0,0 +1,216 @@
+package com.migrator.model;
+
+import com.migrator.util.VersionOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact, sorted index of the versions recorded in schema_migrations.
+ *
+ * Canonical numeric versions (e.g. 202501100930) are stored in a sorted
+ * long[], 8 bytes per row instead of a String and a hash set entry.
+ * Any other version (leading zeros, letters, ...) goes to a small
+ * sorted String[] fallback.
+ *
+ * Both arrays follow {@link VersionOrder}, the same order the
+ * ScriptLoader uses, so pending scripts are found with a single linear
+ * merge instead of one hash lookup per script.
+ *
+ * Usage:
+ *   AppliedVersionIndex.Builder builder = AppliedVersionIndex.builder();
+ *   while (rs.next()) builder.add(rs.getString(1));
+ *   AppliedVersionIndex applied = builder.build();
+ *   AppliedVersionIndex.Diff diff = applied.diff(scripts);
+ */
+public class AppliedVersionIndex {
+
+    /** Number of versions kept as examples in a diff */
+    public static final int SAMPLE_SIZE = 10;
+
+    private final long[] numeric;
+    private final String[] other;
+
+    private AppliedVersionIndex(long[] numeric, String[] other) {
+        this.numeric = numeric;
+        this.other = other;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return Number of applied versions
+     */
+    public int size() {
+        return numeric.length + other.length;
+    }
+
+    public boolean contains(String version) {
+        long value = VersionOrder.toLong(version);
+        if (value >= 0) {
+            return Arrays.binarySearch(numeric, value) >= 0;
+        }
+        return Arrays.binarySearch(other, version, VersionOrder.COMPARATOR) >= 0;
+    }
+
+    /**
+     * @return Highest applied version, or null when nothing is applied
+     */
+    public String latest() {
+        if (other.length > 0) {
+            // Non-canonical versions are mostly non-numeric, which sort last
+            String last = other[other.length - 1];
+            if (numeric.length == 0 || VersionOrder.compare(last, Long.toString(numeric[numeric.length - 1])) > 0) {
+                return last;
+            }
+        }
+        return numeric.length > 0 ? Long.toString(numeric[numeric.length - 1]) : null;
+    }
+
+    /**
+     * Compares local scripts with the applied versions in one pass.
+     *
+     * Memory stays bounded: only pending scripts are collected, versions
+     * missing locally are counted and a few of them kept as examples.
+     *
+     * @param scripts Local scripts sorted by {@link VersionOrder}
+     * @return Pending, out-of-order and missing-locally versions
+     */
+    public Diff diff(List<MigrationScript> scripts) {
+        List<MigrationScript> pending = new ArrayList<>();
+        List<MigrationScript> outOfOrder = new ArrayList<>();
+        List<String> missingSample = new ArrayList<>();
+        int missing = 0;
+
+        String latest = latest();
+
+        // One cursor per array; each script only advances its own kind
+        int n = 0;
+        int o = 0;
+
+        for (MigrationScript script : scripts) {
+            String version = script.getVersion();
+            long value = VersionOrder.toLong(version);
+            boolean applied;
+
+            if (value >= 0) {
+                while (n < numeric.length && numeric[n] < value) {
+                    missing = recordMissing(Long.toString(numeric[n++]), missing, missingSample);
+                }
+                applied = n < numeric.length && numeric[n] == value;
+                if (applied) {
+                    n++;
+                }
+            } else {
+                while (o < other.length && VersionOrder.compare(other[o], version) < 0) {
+                    missing = recordMissing(other[o++], missing, missingSample);
+                }
+                applied = o < other.length && other[o].equals(version);
+                if (applied) {
+                    o++;
+                }
+            }
+
+            if (!applied) {
+                pending.add(script);
+                if (latest != null && VersionOrder.compare(version, latest) < 0) {
+                    outOfOrder.add(script);
+                }
+            }
+        }
+
+        while (n < numeric.length) {
+            missing = recordMissing(Long.toString(numeric[n++]), missing, missingSample);
+        }
+        while (o < other.length) {
+            missing = recordMissing(other[o++], missing, missingSample);
+        }
+
+        return new Diff(pending, outOfOrder, missing, missingSample);
+    }
+
+    private static int recordMissing(String version, int missing, List<String> sample) {
+        if (sample.size() < SAMPLE_SIZE) {
+            sample.add(version);
+        }
+        return missing + 1;
+    }
+
+    /**
+     * Result of {@link #diff(List)}.
+     *
+     * @param pending        Scripts not applied yet, in version order
+     * @param outOfOrder     Pending scripts older than the latest applied version
+     * @param missingLocally Number of applied versions with no local script
+     * @param missingSample  First few of those versions
+     */
+    public record Diff(List<MigrationScript> pending,
+                       List<MigrationScript> outOfOrder,
+                       int missingLocally,
+                       List<String> missingSample) {
+    }
+
+    /**
+     * Collects versions in any order; {@link #build()} sorts and
+     * removes duplicates. Already sorted input is not re-sorted.
+     */
+    public static class Builder {
+
+        private long[] numeric = new long[1024];
+        private int count;
+        private final List<String> other = new ArrayList<>();
+
+        public Builder add(String version) {
+            long value = VersionOrder.toLong(version);
+            if (value < 0) {
+                other.add(version);
+                return this;
+            }
+
+            if (count == numeric.length) {
+                numeric = Arrays.copyOf(numeric, count * 2);
+            }
+            numeric[count++] = value;
+            return this;
+        }
+
+        public AppliedVersionIndex build() {
+            long[] values = Arrays.copyOf(numeric, count);
+            if (!isSorted(values)) {
+                Arrays.sort(values);
+            }
+
+            String[] strings = other.stream()
+                    .sorted(VersionOrder.COMPARATOR)
+                    .distinct()
+                    .toArray(String[]::new);
+
+            return new AppliedVersionIndex(distinct(values), strings);
+        }
+
+        private static boolean isSorted(long[] values) {
+            for (int i = 1; i < values.length; i++) {
+                if (values[i - 1] > values[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long[] distinct(long[] sorted) {
+            if (sorted.length == 0) {
+                return sorted;
+            }
+            int k = 1;
+            for (int i = 1; i < sorted.length; i++) {
+                if (sorted[i] != sorted[k - 1]) {
+                    sorted[k++] = sorted[i];
+                }
+            }
+            return k == sorted.length ? sorted : Arrays.copyOf(sorted, k);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.migrator.model;
+
+/**
+ * Committed progress of a backfill migration, stored in the
+ * schema_migration_backfill table.
+ *
+ * The key range is computed on the first run and kept, so a resumed
+ * run covers exactly the rows that existed when the backfill started.
+ *
+ * @param version    Migration version
+ * @param rangeStart Lowest key (inclusive)
+ * @param rangeEnd   Highest key (inclusive)
+ * @param nextKey    First key not yet processed
+ */
+public record BackfillProgress(String version, long rangeStart, long rangeEnd, long nextKey) {
+
+    /**
+     * @return Progress of a backfill that has not processed any key yet
+     */
+    public static BackfillProgress start(String version, long rangeStart, long rangeEnd) {
+        return new BackfillProgress(version, rangeStart, rangeEnd, rangeStart);
+    }
+
+    public boolean isComplete() {
+        return nextKey > rangeEnd;
+    }
+
+    /**
+     * @return Same backfill with nextKey moved forward
+     */
+    public BackfillProgress advance(long nextKey) {
+        return new BackfillProgress(version, rangeStart, rangeEnd, nextKey);
+    }
+
+    /**
+     * @return Share of the key range processed, from 0 to 100
+     */
+    public int percent() {
+        if (isComplete() || rangeEnd <= rangeStart) {
+            return isComplete() ? 100 : 0;
+        }
+        return (int) (100.0 * ((double) nextKey - rangeStart) / ((double) rangeEnd - rangeStart + 1));
+    }
+}
@@ -0,0 +1,88 @@
+package com.migrator.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Parsed .load descriptor of a bulk-load migration.
+ *
+ * A bulk-load migration is a pair of files sharing the same name:
+ *
+ *   202501121210__seed_countries.load
+ *   202501121210__seed_countries.csv     (or .tsv)
+ *
+ * The descriptor is a properties file:
+ *
+ *   table=countries                  target table (required)
+ *   columns=id,name,iso_code         target columns in file order
+ *                                    (default: the header line)
+ *   header=true                      first line holds column names (default: true)
+ *   delimiter=;                      field separator (default: "," for .csv, tab for .tsv)
+ *   encoding=UTF-8                   data file encoding (default: UTF-8)
+ *
+ * Fields follow CSV quoting rules. An unquoted empty field is NULL.
+ */
+public record BulkLoadSpec(
+        String table,
+        List<String> columns,
+        boolean header,
+        char delimiter,
+        Charset encoding,
+        Path dataFile
+) {
+
+    /**
+     * Reads a descriptor.
+     *
+     * @param descriptor .load file
+     * @param dataFile   .csv or .tsv file next to it
+     * @throws IOException when the descriptor cannot be read
+     */
+    public static BulkLoadSpec read(Path descriptor, Path dataFile) throws IOException {
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(descriptor, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        }
+
+        String table = props.getProperty("table");
+        if (table == null || table.isBlank()) {
+            throw new IllegalArgumentException("Bulk-load descriptor " + descriptor + " is missing 'table'");
+        }
+
+        String columns = props.getProperty("columns", "").strip();
+        boolean header = Boolean.parseBoolean(props.getProperty("header", "true"));
+
+        if (columns.isEmpty() && !header) {
+            throw new IllegalArgumentException(
+                    "Bulk-load descriptor " + descriptor + " needs 'columns' when header=false");
+        }
+
+        String defaultDelimiter = dataFile.getFileName().toString().endsWith(".tsv") ? "\t" : ",";
+        String delimiter = props.getProperty("delimiter", defaultDelimiter);
+        if (delimiter.equals("\\t")) {
+            delimiter = "\t";
+        }
+        if (delimiter.length() != 1) {
+            throw new IllegalArgumentException(
+                    "Bulk-load descriptor " + descriptor + " has an invalid delimiter: '" + delimiter + "'");
+        }
+
+        return new BulkLoadSpec(
+                table.strip(),
+                columns.isEmpty()
+                        ? List.of()
+                        : Arrays.stream(columns.split(",")).map(String::strip).toList(),
+                header,
+                delimiter.charAt(0),
+                Charset.forName(props.getProperty("encoding", "UTF-8")),
+                dataFile
+        );
+    }
+}
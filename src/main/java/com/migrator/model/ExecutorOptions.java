@@ -0,0 +1,24 @@
+package com.migrator.model;
+
+/**
+ * Script executor settings given on the command line, applied to every
+ * executor of a run: the main connection, --parallel workers, fleet
+ * targets and tenant workers alike.
+ *
+ * This class is a simple data holder.
+ * It contains NO database-specific logic.
+ *
+ * @param batchSize               JDBC batch size; 1 disables batching
+ * @param savepointInterval       Statements between savepoints; 0 disables them
+ * @param onlineDdl               Postgres online DDL mode
+ * @param onlineLockTimeoutMillis lock_timeout of each DDL statement in online mode
+ * @param onlineLockRetries       Attempts per DDL statement in online mode
+ */
+public record ExecutorOptions(
+        int batchSize,
+        int savepointInterval,
+        boolean onlineDdl,
+        long onlineLockTimeoutMillis,
+        int onlineLockRetries
+) {
+}
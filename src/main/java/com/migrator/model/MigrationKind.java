@@ -0,0 +1,13 @@
+package com.migrator.model;
+
+/**
+ * How a migration is applied.
+ *
+ * - SQL: a .sql script executed statement by statement
+ * - BULK_LOAD: a .load descriptor plus a .csv/.tsv data file that is
+ *   streamed into a table with the database's bulk-load API
+ */
+public enum MigrationKind {
+    SQL,
+    BULK_LOAD
+}
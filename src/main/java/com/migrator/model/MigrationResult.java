@@ -4,19 +4,33 @@ public class MigrationResult {
     private final MigrationScript script;
     private final boolean success;
     private final Exception error;
+    private final ScriptMetrics metrics;
 
     public static MigrationResult success(MigrationScript s) {
         return new MigrationResult(s, true, null);
     }
 
+    public static MigrationResult success(MigrationScript s, ScriptMetrics metrics) {
+        return new MigrationResult(s, true, null, metrics);
+    }
+
     public static MigrationResult failure(MigrationScript s, Exception e) {
         return new MigrationResult(s, false, e);
     }
 
+    public static MigrationResult failure(MigrationScript s, Exception e, ScriptMetrics metrics) {
+        return new MigrationResult(s, false, e, metrics);
+    }
+
     public MigrationResult(MigrationScript script, boolean success, Exception error) {
+        this(script, success, error, null);
+    }
+
+    public MigrationResult(MigrationScript script, boolean success, Exception error, ScriptMetrics metrics) {
         this.error = error;
         this.script = script;
         this.success = success;
+        this.metrics = metrics;
     }
 
     public Exception getError() {
@@ -30,5 +44,9 @@ public class MigrationResult {
     public MigrationScript getScript() {
         return script;
     }
-}
 
+    /** @return Timings of the execution, or null when none were recorded */
+    public ScriptMetrics getMetrics() {
+        return metrics;
+    }
+}
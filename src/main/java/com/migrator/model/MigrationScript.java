@@ -1,5 +1,17 @@
 package com.migrator.model;
 
+import com.migrator.util.ChecksumOptions;
+import com.migrator.util.ChecksumUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 /**
  * Represents a single database migration script.
  *
@@ -15,6 +27,15 @@ package com.migrator.model;
  * - Detect if a script has already been applied
  * - Validate script integrity via checksum comparison
  * - Pass script objects between components (loader, executor, tracker)
+ *
+ * Bulk-load migrations use the same class: the source is the .load
+ * descriptor and the data file is streamed by the executor.
+ *
+ * A script can also be created from the index only (version,
+ * description, path and size). In that case the content is read
+ * from disk each time it is requested and the checksum is computed
+ * on first access, so scripts that are never executed or validated
+ * never cost any file I/O.
  */
 public class MigrationScript {
 
@@ -24,11 +45,23 @@ public class MigrationScript {
     /** Human-readable description (comes from the filename). */
     private final String description;
 
-    /** The SQL content read directly from the migration file. */
+    /** The SQL content read directly from the migration file (null for indexed scripts). */
     private final String content;
 
-    /** SHA-256 checksum of the SQL content. */
-    private final String checksum;
+    /** File the script was indexed from (null for in-memory scripts). */
+    private final Path source;
+
+    /** Data file of a bulk-load migration (null for SQL scripts). */
+    private final Path dataFile;
+
+    /** File size in bytes as seen when the script was indexed. */
+    private final long size;
+
+    /** How the checksum of an indexed script is computed. */
+    private final ChecksumOptions checksumOptions;
+
+    /** Checksum of the SQL content, tagged with its options (computed lazily for indexed scripts). */
+    private volatile String checksum;
 
     /** Failure Strategy of the script. */
     private MigrationStatus strategy;
@@ -45,6 +78,61 @@ public class MigrationScript {
         this.version = version;
         this.description = description;
         this.content = content;
+        this.source = null;
+        this.dataFile = null;
+        this.size = content.length();
+        this.checksumOptions = ChecksumOptions.DEFAULT;
+        this.checksum = checksum;
+        this.strategy = strategy;
+    }
+
+    /**
+     * Creates an index-only MigrationScript whose content stays on disk.
+     *
+     * @param version     Unique version/timestamp from filename
+     * @param description Human-readable description from filename
+     * @param source      Path of the migration file
+     * @param size        File size in bytes
+     */
+    public MigrationScript(String version, String description, Path source, long size, MigrationStatus strategy) {
+        this(version, description, source, size, null, ChecksumOptions.DEFAULT, strategy);
+    }
+
+    /**
+     * Creates an index-only MigrationScript with an already known checksum.
+     *
+     * @param version     Unique version/timestamp from filename
+     * @param description Human-readable description from filename
+     * @param source      Path of the migration file
+     * @param size        File size in bytes
+     * @param checksum    Cached checksum, or null to compute it on first access
+     * @param options     How to compute the checksum when it is not cached
+     */
+    public MigrationScript(String version, String description, Path source, long size, String checksum,
+                           ChecksumOptions options, MigrationStatus strategy) {
+        this(version, description, source, null, size, checksum, options, strategy);
+    }
+
+    /**
+     * Creates an index-only bulk-load migration.
+     *
+     * @param version     Unique version/timestamp from filename
+     * @param description Human-readable description from filename
+     * @param descriptor  Path of the .load descriptor
+     * @param dataFile    Path of the .csv/.tsv data file, or null for a SQL script
+     * @param size        Combined size of both files in bytes
+     * @param checksum    Cached checksum, or null to compute it on first access
+     * @param options     How to compute the checksum when it is not cached
+     */
+    public MigrationScript(String version, String description, Path descriptor, Path dataFile, long size,
+                           String checksum, ChecksumOptions options, MigrationStatus strategy) {
+        this.version = version;
+        this.description = description;
+        this.content = null;
+        this.source = descriptor;
+        this.dataFile = dataFile;
+        this.size = size;
+        this.checksumOptions = options;
         this.checksum = checksum;
         this.strategy = strategy;
     }
@@ -59,14 +147,99 @@ public class MigrationScript {
         return description;
     }
 
-    /** @return Raw SQL content */
+    /**
+     * Indexed scripts read their file on every call and do not keep
+     * the content around afterwards.
+     *
+     * @return Raw SQL content
+     */
     public String getContent() {
-        return content;
+        if (content != null) {
+            return content;
+        }
+        try {
+            return Files.readString(source);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read migration file: " + source, e);
+        }
     }
 
-    /** @return SHA-256 checksum of the SQL content */
+    /**
+     * Opens the script for streaming, without reading it into memory.
+     *
+     * @return Reader over the SQL content; the caller must close it
+     * @throws IOException when the file cannot be opened
+     */
+    public Reader openReader() throws IOException {
+        if (content != null) {
+            return new StringReader(content);
+        }
+        return Files.newBufferedReader(source, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Indexed scripts are hashed straight from the file on first access.
+     * For bulk-load migrations the descriptor and data file are hashed together.
+     *
+     * @return Checksum of the SQL content, tagged unless it is SHA-256 (see {@link ChecksumOptions})
+     */
     public String getChecksum() {
-        return checksum;
+        String value = checksum;
+        if (value == null) {
+            if (source == null) {
+                value = ChecksumUtil.generateChecksum(content);
+            } else if (dataFile == null) {
+                value = checksumOptions.checksum(source);
+            } else {
+                value = checksumOptions.checksum(source, dataFile);
+            }
+            checksum = value;
+        }
+        return value;
+    }
+
+    /**
+     * Computes the checksum with the given options, e.g. those an
+     * applied version was recorded with.
+     */
+    public String getChecksum(ChecksumOptions options) {
+        if (source == null) {
+            return options.checksum(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        }
+        if (options.equals(checksumOptions)) {
+            return getChecksum();
+        }
+        return dataFile == null ? options.checksum(source) : options.checksum(source, dataFile);
+    }
+
+    /** @return How the checksum of this script is computed */
+    public ChecksumOptions getChecksumOptions() {
+        return checksumOptions;
+    }
+
+    /** @return true when the checksum is already known without reading the file */
+    public boolean isChecksumLoaded() {
+        return checksum != null;
+    }
+
+    /** @return Whether this is a SQL script or a bulk-load migration */
+    public MigrationKind getKind() {
+        return dataFile != null ? MigrationKind.BULK_LOAD : MigrationKind.SQL;
+    }
+
+    /** @return Data file of a bulk-load migration, or null for SQL scripts */
+    public Path getDataFile() {
+        return dataFile;
+    }
+
+    /** @return File the script was indexed from, or null for in-memory scripts */
+    public Path getSource() {
+        return source;
+    }
+
+    /** @return Size of the script in bytes (characters for in-memory scripts) */
+    public long getSize() {
+        return size;
     }
 
     /** @return Failure strategy of the script */
@@ -78,4 +251,27 @@ public class MigrationScript {
     public void updateStrategy(MigrationStatus strategy) {
         this.strategy = strategy;
     }
+
+    /**
+     * Returns a PENDING copy sharing the file references, content and
+     * checksum, so one loaded script set can run against several
+     * databases without sharing per-run status.
+     */
+    public MigrationScript copy() {
+        return new MigrationScript(version, description, content, source, dataFile, size,
+                checksum, checksumOptions, MigrationStatus.PENDING);
+    }
+
+    private MigrationScript(String version, String description, String content, Path source, Path dataFile,
+                            long size, String checksum, ChecksumOptions options, MigrationStatus strategy) {
+        this.version = version;
+        this.description = description;
+        this.content = content;
+        this.source = source;
+        this.dataFile = dataFile;
+        this.size = size;
+        this.checksumOptions = options;
+        this.checksum = checksum;
+        this.strategy = strategy;
+    }
 }
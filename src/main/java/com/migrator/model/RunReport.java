@@ -0,0 +1,220 @@
+package com.migrator.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Machine-readable summary of one migration run, written as JSON
+ * (--report=FILE).
+ *
+ * Usage:
+ *   RunReport report = new RunReport("postgres", "db-1", "orders");
+ *   report.recordLockWait(nanos);
+ *   report.addPending(n);                // scripts found pending
+ *   report.add(result);                  // once per executed script
+ *   String json = report.toJson(error);  // error is null on success
+ *
+ * Scripts are listed in completion order with the figures of their
+ * {@link ScriptMetrics}. Tenant runs share one report between their
+ * workers: results carry their schema, pending counts add up, and
+ * every method is synchronized.
+ */
+public class RunReport {
+
+    private final String databaseType;
+    private final String host;
+    private final String database;
+
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private long lockWaitNanos;
+    private int pending;
+
+    private final List<MigrationResult> results = new ArrayList<>();
+
+    /** Schema of each result, null outside tenant runs */
+    private final List<String> schemas = new ArrayList<>();
+
+    public RunReport(String databaseType, String host, String database) {
+        this.databaseType = databaseType;
+        this.host = host;
+        this.database = database;
+    }
+
+    /**
+     * @param nanos Time spent waiting for the migration lock
+     */
+    public synchronized void recordLockWait(long nanos) {
+        lockWaitNanos += nanos;
+    }
+
+    /**
+     * @param pending Scripts found pending, in one database or schema
+     */
+    public synchronized void addPending(int pending) {
+        this.pending += pending;
+    }
+
+    public void add(MigrationResult result) {
+        add(null, result);
+    }
+
+    /**
+     * @param schema Tenant schema the script ran in, or null
+     */
+    public synchronized void add(String schema, MigrationResult result) {
+        results.add(result);
+        schemas.add(schema);
+    }
+
+    public String getDatabaseType() {
+        return databaseType;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    /** @return Time since the report was created */
+    public long getElapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public synchronized long getLockWaitMillis() {
+        return lockWaitNanos / 1_000_000;
+    }
+
+    /** @return Pending scripts found at the start of the run */
+    public synchronized int getPending() {
+        return pending;
+    }
+
+    /** @return Results of the executed scripts, in completion order */
+    public synchronized List<MigrationResult> getResults() {
+        return List.copyOf(results);
+    }
+
+    /**
+     * @param error Failure that ended the run, or null when it succeeded
+     */
+    public synchronized String toJson(Exception error) {
+        long applied = results.stream().filter(MigrationResult::isSuccess).count();
+        long rows = results.stream()
+                .filter(result -> result.isSuccess() && result.getMetrics() != null)
+                .mapToLong(result -> result.getMetrics().getRowsAffected())
+                .sum();
+
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\n");
+        field(json, 1, "status", error == null ? "succeeded" : "failed").append(",\n");
+        field(json, 1, "error", error == null ? null : error.getMessage()).append(",\n");
+        field(json, 1, "database_type", databaseType).append(",\n");
+        field(json, 1, "host", host).append(",\n");
+        field(json, 1, "database", database).append(",\n");
+        field(json, 1, "started_at", startedAt.toString()).append(",\n");
+        field(json, 1, "finished_at", Instant.now().toString()).append(",\n");
+        number(json, 1, "duration_ms", (System.nanoTime() - startNanos) / 1_000_000).append(",\n");
+        number(json, 1, "lock_wait_ms", lockWaitNanos / 1_000_000).append(",\n");
+        number(json, 1, "pending", pending).append(",\n");
+        number(json, 1, "applied", applied).append(",\n");
+        number(json, 1, "failed", results.size() - applied).append(",\n");
+        number(json, 1, "rows_affected", rows).append(",\n");
+        indent(json, 1).append("\"scripts\": [");
+
+        for (int i = 0; i < results.size(); i++) {
+            json.append(i == 0 ? "\n" : ",\n");
+            script(json, schemas.get(i), results.get(i));
+        }
+        json.append(results.isEmpty() ? "]\n" : "\n  ]\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    private static void script(StringBuilder json, String schema, MigrationResult result) {
+        MigrationScript script = result.getScript();
+        ScriptMetrics metrics = result.getMetrics();
+
+        indent(json, 2).append("{\n");
+        if (schema != null) {
+            field(json, 3, "schema", schema).append(",\n");
+        }
+        field(json, 3, "version", script.getVersion()).append(",\n");
+        field(json, 3, "description", script.getDescription()).append(",\n");
+        field(json, 3, "status", result.isSuccess() ? "applied" : "failed");
+        if (result.getError() != null) {
+            json.append(",\n");
+            field(json, 3, "error", result.getError().getMessage());
+        }
+
+        if (metrics != null) {
+            json.append(",\n");
+            field(json, 3, "started_at", metrics.getStartedAt().toString()).append(",\n");
+            number(json, 3, "execution_ms", metrics.getExecutionMillis()).append(",\n");
+            number(json, 3, "rows_affected", metrics.getRowsAffected()).append(",\n");
+            number(json, 3, "statements", metrics.getStatements()).append(",\n");
+            number(json, 3, "attempts", metrics.getAttempts()).append(",\n");
+            number(json, 3, "statement_retries", metrics.getStatementRetries()).append(",\n");
+            number(json, 3, "lock_retries", metrics.getLockRetries()).append(",\n");
+            number(json, 3, "lock_wait_ms", metrics.getLockWaitMillis()).append(",\n");
+            indent(json, 3).append("\"slowest_statements\": [");
+
+            List<ScriptMetrics.StatementTiming> slowest = metrics.getSlowest();
+            for (int i = 0; i < slowest.size(); i++) {
+                ScriptMetrics.StatementTiming timing = slowest.get(i);
+                json.append(i == 0 ? "" : ", ")
+                        .append("{\"statement\": ").append(timing.index() + 1)
+                        .append(", \"line\": ").append(timing.line())
+                        .append(", \"batched\": ").append(timing.statements())
+                        .append(", \"ms\": ").append(timing.millis())
+                        .append(", \"rows\": ").append(timing.rows())
+                        .append('}');
+            }
+            json.append(']');
+        }
+
+        json.append('\n');
+        indent(json, 2).append('}');
+    }
+
+    private static StringBuilder field(StringBuilder json, int depth, String name, String value) {
+        indent(json, depth).append('"').append(name).append("\": ");
+        if (value == null) {
+            return json.append("null");
+        }
+        return escape(json.append('"'), value).append('"');
+    }
+
+    private static StringBuilder number(StringBuilder json, int depth, String name, long value) {
+        return indent(json, depth).append('"').append(name).append("\": ").append(value);
+    }
+
+    private static StringBuilder indent(StringBuilder json, int depth) {
+        return json.append("  ".repeat(depth));
+    }
+
+    private static StringBuilder escape(StringBuilder json, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json;
+    }
+}
@@ -0,0 +1,226 @@
+package com.migrator.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Timings and counters of one migration script, filled in by the
+ * executor while the script runs.
+ *
+ * - executionMillis: wall time from the first attempt until the script
+ *   was recorded, retries and backoff included
+ * - rowsAffected:    sum of the update counts reported by the driver
+ *   for the attempt that committed (rows of rolled-back work are not
+ *   counted)
+ * - attempts, statementRetries, lockRetries: script-level attempts,
+ *   chunk re-runs after a savepoint rollback, and DDL retries after a
+ *   lock timeout
+ * - lockWaitMillis:  time spent on DDL attempts that timed out waiting
+ *   for a table lock, plus the backoff after them
+ * - retriesByState:  every retry above, by SQLState class of its cause
+ *   (first two characters, e.g. "40" for deadlocks)
+ * - bytesLoaded:     size of the data file of a bulk load
+ *
+ * Only the slowest statements are kept, so a script of many thousand
+ * statements does not grow the report.
+ *
+ * Not thread-safe: a script runs on one executor at a time.
+ */
+public final class ScriptMetrics {
+
+    /** Statements kept per script, slowest first */
+    public static final int SLOWEST_STATEMENTS = 10;
+
+    private final String version;
+    private final String description;
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+
+    private long executionNanos = -1;
+    private long rowsAffected;
+    private int statements;
+    private int attempts;
+    private int statementRetries;
+    private int lockRetries;
+    private long lockWaitNanos;
+    private long bytesLoaded;
+    private final Map<String, Integer> retriesByState = new TreeMap<>();
+
+    /** Counters at the last savepoint */
+    private long checkpointRows;
+    private int checkpointStatements;
+
+    private final List<StatementTiming> slowest = new ArrayList<>();
+
+    public ScriptMetrics(MigrationScript script) {
+        this.version = script.getVersion();
+        this.description = script.getDescription();
+    }
+
+    /**
+     * Starts a script-level attempt; counts of a rolled-back attempt
+     * are dropped.
+     */
+    public void startAttempt() {
+        attempts++;
+        rowsAffected = 0;
+        statements = 0;
+        checkpointRows = 0;
+        checkpointStatements = 0;
+        slowest.clear();
+    }
+
+    /**
+     * @param statementCount Statements sent in one round trip (1, or the JDBC batch size)
+     * @param nanos          Time of the round trip
+     * @param rows           Rows reported by the driver, 0 when unknown
+     */
+    public void recordStatement(int index, int line, int statementCount, long nanos, long rows) {
+        statements += statementCount;
+        rowsAffected += rows;
+
+        StatementTiming timing = new StatementTiming(index, line, statementCount, nanos / 1_000_000, rows);
+        if (slowest.size() < SLOWEST_STATEMENTS) {
+            slowest.add(timing);
+        } else if (nanos / 1_000_000 > slowest.getLast().millis()) {
+            slowest.set(slowest.size() - 1, timing);
+        } else {
+            return;
+        }
+        slowest.sort(Comparator.comparingLong(StatementTiming::millis).reversed());
+    }
+
+    /**
+     * Adds rows of work not made of single statements (bulk loads, backfill chunks).
+     */
+    public void addRows(long rows) {
+        rowsAffected += Math.max(0, rows);
+    }
+
+    /** Marks the counters as safe behind a savepoint. */
+    public void checkpoint() {
+        checkpointRows = rowsAffected;
+        checkpointStatements = statements;
+    }
+
+    /**
+     * Drops counts of work rolled back to the last savepoint, and counts the retry.
+     *
+     * @param sqlState SQLState of the transient failure, or null
+     */
+    public void rollbackToCheckpoint(String sqlState) {
+        rowsAffected = checkpointRows;
+        statements = checkpointStatements;
+        statementRetries++;
+        countRetry(sqlState);
+    }
+
+    /**
+     * Counts a chunk re-run that does not go through a savepoint (backfill chunks).
+     */
+    public void recordStatementRetry(String sqlState) {
+        statementRetries++;
+        countRetry(sqlState);
+    }
+
+    /**
+     * Counts a script-level retry; the attempt itself is counted by startAttempt().
+     */
+    public void recordAttemptRetry(String sqlState) {
+        countRetry(sqlState);
+    }
+
+    /**
+     * @param sqlState    SQLState of the lock timeout
+     * @param waitedNanos Time of the attempt that timed out on the lock, plus the backoff after it
+     */
+    public void recordLockRetry(String sqlState, long waitedNanos) {
+        lockRetries++;
+        lockWaitNanos += waitedNanos;
+        countRetry(sqlState);
+    }
+
+    public void addBytesLoaded(long bytes) {
+        bytesLoaded += bytes;
+    }
+
+    private void countRetry(String sqlState) {
+        String stateClass = sqlState != null && sqlState.length() >= 2 ? sqlState.substring(0, 2) : "unknown";
+        retriesByState.merge(stateClass, 1, Integer::sum);
+    }
+
+    /** Stops the clock; called before the history row is written. */
+    public void finish() {
+        executionNanos = System.nanoTime() - startNanos;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    /** @return Execution time, or the time so far when the script did not finish */
+    public long getExecutionMillis() {
+        return (executionNanos >= 0 ? executionNanos : System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public long getRowsAffected() {
+        return rowsAffected;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public int getStatementRetries() {
+        return statementRetries;
+    }
+
+    public int getLockRetries() {
+        return lockRetries;
+    }
+
+    public long getLockWaitMillis() {
+        return lockWaitNanos / 1_000_000;
+    }
+
+    public long getBytesLoaded() {
+        return bytesLoaded;
+    }
+
+    /** @return Retries by SQLState class, sorted by class */
+    public Map<String, Integer> getRetriesByState() {
+        return Collections.unmodifiableMap(new TreeMap<>(retriesByState));
+    }
+
+    /** @return Slowest statements of the committed attempt, slowest first */
+    public List<StatementTiming> getSlowest() {
+        return List.copyOf(slowest);
+    }
+
+    /**
+     * @param index      Zero-based position of the (first) statement in the script
+     * @param line       Line where it starts
+     * @param statements Statements sent together (JDBC batch), usually 1
+     * @param millis     Execution time
+     * @param rows       Rows reported by the driver
+     */
+    public record StatementTiming(int index, int line, int statements, long millis, long rows) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.migrator.util;
+
+/**
+ * Hash algorithms supported for migration checksums.
+ *
+ * SHA256 is the default and matches checksums stored by earlier
+ * versions. CRC32C is much faster but not collision-resistant; it
+ * only detects accidental edits, not deliberate tampering.
+ */
+public enum ChecksumAlgorithm {
+    SHA256,
+    CRC32C;
+
+    public static ChecksumAlgorithm from(String value) {
+        return switch (value.toUpperCase().replace("-", "")) {
+            case "SHA256" -> SHA256;
+            case "CRC32C" -> CRC32C;
+            default -> throw new IllegalArgumentException(
+                    "Unknown checksum algorithm: " + value +
+                            ". Allowed values: sha256, crc32c"
+            );
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package com.migrator.util;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * How migration checksums are computed.
+ *
+ * Checksums computed with other than the default options are stored
+ * with the id of their options, e.g. "crc32c+lf:1f3a09c2", so an
+ * applied version can be checked with the options it was recorded
+ * with. Untagged checksums are plain SHA-256.
+ *
+ * @param algorithm             Hash algorithm
+ * @param normalizeLineEndings  Treat CRLF as LF, so a script checked out
+ *                              on Windows has the same checksum as on Linux
+ */
+public record ChecksumOptions(
+        ChecksumAlgorithm algorithm,
+        boolean normalizeLineEndings
+) {
+
+    /** SHA-256 over the raw file bytes, compatible with stored checksums */
+    public static final ChecksumOptions DEFAULT = new ChecksumOptions(ChecksumAlgorithm.SHA256, false);
+
+    /** Computes the tagged checksum of the given files, hashed in order, with these options. */
+    public String checksum(Path... paths) {
+        return tag(ChecksumUtil.generateChecksum(List.of(paths), algorithm, normalizeLineEndings));
+    }
+
+    /** Computes the tagged checksum of the stream, which is read to the end but not closed. */
+    public String checksum(InputStream input) {
+        return tag(ChecksumUtil.generateChecksum(input, algorithm, normalizeLineEndings));
+    }
+
+    /**
+     * @return The options a stored checksum was computed with
+     * @throws IllegalArgumentException when the tag is unknown
+     */
+    public static ChecksumOptions of(String checksum) {
+        int colon = checksum.indexOf(':');
+        if (colon < 0) {
+            return DEFAULT;
+        }
+        String id = checksum.substring(0, colon);
+        boolean normalize = id.endsWith("+lf");
+        return new ChecksumOptions(
+                ChecksumAlgorithm.from(normalize ? id.substring(0, id.length() - 3) : id), normalize);
+    }
+
+    private String tag(String hex) {
+        return equals(DEFAULT) ? hex : id() + ":" + hex;
+    }
+
+    /** @return Short identifier, e.g. "sha256" or "crc32c+lf" */
+    public String id() {
+        return algorithm.name().toLowerCase() + (normalizeLineEndings ? "+lf" : "");
+    }
+}
@@ -1,6 +1,17 @@
 package com.migrator.util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.zip.CRC32C;
 
 /**
  * Utility class responsible for generating a cryptographic checksum
@@ -16,9 +27,19 @@ import java.security.MessageDigest;
  * - It is collision-resistant.
  * - Widely accepted and secure.
  * - Easy to generate without extra dependencies.
+ *
+ * Files are hashed straight from a FileChannel in fixed-size
+ * buffers, so a script is never materialized as a String just to
+ * compute its checksum. Text is always hashed as UTF-8, which gives
+ * the same SHA-256 hex values as hashing the raw file bytes.
  */
 public class ChecksumUtil {
 
+    /** Size of the read buffer used for streaming */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
     /**
      * Generates a SHA-256 checksum for the given input string.
      *
@@ -26,23 +47,219 @@ public class ChecksumUtil {
      * @return Hexadecimal SHA-256 hash
      */
     public static String generateChecksum(String input) {
+        Hasher hasher = Hasher.of(ChecksumAlgorithm.SHA256);
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        hasher.update(bytes, 0, bytes.length);
+        return hasher.hex();
+    }
+
+    /**
+     * Generates a SHA-256 checksum of a file without loading it into memory.
+     *
+     * @param path Migration file
+     * @return Hexadecimal SHA-256 hash
+     */
+    public static String generateChecksum(Path path) {
+        return generateChecksum(path, ChecksumAlgorithm.SHA256, false);
+    }
+
+    /**
+     * Streams a file through the given algorithm.
+     *
+     * @param path                 Migration file
+     * @param algorithm            Hash algorithm to use
+     * @param normalizeLineEndings Hash CRLF as LF
+     * @return Hexadecimal hash
+     */
+    public static String generateChecksum(Path path, ChecksumAlgorithm algorithm, boolean normalizeLineEndings) {
+        return generateChecksum(List.of(path), algorithm, normalizeLineEndings);
+    }
+
+    /**
+     * Streams several files, in order, through a single hash. Used for
+     * migrations made of more than one file (e.g. bulk-load descriptor
+     * plus data file).
+     *
+     * @param paths                Files to hash
+     * @param algorithm            Hash algorithm to use
+     * @param normalizeLineEndings Hash CRLF as LF
+     * @return Hexadecimal hash
+     */
+    public static String generateChecksum(List<Path> paths, ChecksumAlgorithm algorithm, boolean normalizeLineEndings) {
+        Hasher hasher = Hasher.of(algorithm);
+        LineEndingFilter filter = new LineEndingFilter(hasher, normalizeLineEndings);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        for (Path path : paths) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                while (channel.read(buffer) >= 0) {
+                    filter.update(buffer.array(), 0, buffer.position());
+                    buffer.clear();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to generate checksum for " + path, e);
+            }
+        }
+
+        filter.finish();
+        return hasher.hex();
+    }
+
+    /**
+     * Streams the given input through the algorithm. The stream is
+     * read to the end but not closed.
+     *
+     * @param input                Data to hash
+     * @param algorithm            Hash algorithm to use
+     * @param normalizeLineEndings Hash CRLF as LF
+     * @return Hexadecimal hash
+     */
+    public static String generateChecksum(InputStream input, ChecksumAlgorithm algorithm, boolean normalizeLineEndings) {
+        Hasher hasher = Hasher.of(algorithm);
+        LineEndingFilter filter = new LineEndingFilter(hasher, normalizeLineEndings);
+        byte[] buffer = new byte[BUFFER_SIZE];
+
         try {
-            // Create SHA-256 hash generator
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                filter.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to generate checksum", e);
+        }
+
+        filter.finish();
+        return hasher.hex();
+    }
+
+    /**
+     * Converts bytes to lowercase hex using a lookup table.
+     */
+    static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[i * 2] = HEX[(bytes[i] >> 4) & 0x0f];
+            out[i * 2 + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(out);
+    }
+
+    /**
+     * Common interface over MessageDigest and Checksum implementations.
+     */
+    private interface Hasher {
+
+        void update(byte[] data, int offset, int length);
 
-            // Compute hash
-            byte[] hashBytes = md.digest(input.getBytes());
+        String hex();
 
-            // Convert hash bytes to hex string
-            StringBuilder hex = new StringBuilder();
-            for (byte b : hashBytes) {
-                hex.append(String.format("%02x", b));
+        static Hasher of(ChecksumAlgorithm algorithm) {
+            return switch (algorithm) {
+                case SHA256 -> new DigestHasher("SHA-256");
+                case CRC32C -> new Crc32cHasher();
+            };
+        }
+    }
+
+    private static final class DigestHasher implements Hasher {
+        private final MessageDigest digest;
+
+        DigestHasher(String algorithm) {
+            try {
+                this.digest = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("Failed to generate checksum", e);
             }
+        }
 
-            return hex.toString();
+        @Override
+        public void update(byte[] data, int offset, int length) {
+            digest.update(data, offset, length);
+        }
+
+        @Override
+        public String hex() {
+            return toHex(digest.digest());
+        }
+    }
+
+    private static final class Crc32cHasher implements Hasher {
+        private final CRC32C crc = new CRC32C();
 
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to generate checksum", e);
+        @Override
+        public void update(byte[] data, int offset, int length) {
+            crc.update(data, offset, length);
+        }
+
+        @Override
+        public String hex() {
+            long value = crc.getValue();
+            return toHex(new byte[] {
+                    (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value
+            });
+        }
+    }
+
+    /**
+     * Optionally rewrites CRLF to LF on the fly. A CR at the end of
+     * one buffer is held back until the next byte is known.
+     */
+    private static final class LineEndingFilter {
+        private static final byte CR = '\r';
+        private static final byte LF = '\n';
+        private static final byte[] CR_ONLY = { CR };
+
+        private final Hasher hasher;
+        private final boolean enabled;
+        private boolean pendingCr;
+
+        LineEndingFilter(Hasher hasher, boolean enabled) {
+            this.hasher = hasher;
+            this.enabled = enabled;
+        }
+
+        void update(byte[] data, int offset, int length) {
+            if (!enabled) {
+                hasher.update(data, offset, length);
+                return;
+            }
+
+            int start = offset;
+            int end = offset + length;
+
+            if (pendingCr && length > 0) {
+                pendingCr = false;
+                if (data[offset] != LF) {
+                    hasher.update(CR_ONLY, 0, 1);
+                }
+            }
+
+            for (int i = offset; i < end; i++) {
+                if (data[i] != CR) {
+                    continue;
+                }
+                if (i + 1 == end) {
+                    // Decide once the next buffer arrives
+                    hasher.update(data, start, i - start);
+                    pendingCr = true;
+                    start = end;
+                } else if (data[i + 1] == LF) {
+                    // Drop the CR, keep the LF
+                    hasher.update(data, start, i - start);
+                    start = i + 1;
+                }
+            }
+
+            if (start < end) {
+                hasher.update(data, start, end - start);
+            }
+        }
+
+        void finish() {
+            if (pendingCr) {
+                hasher.update(CR_ONLY, 0, 1);
+                pendingCr = false;
+            }
         }
     }
 }
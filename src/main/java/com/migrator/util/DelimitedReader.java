@@ -0,0 +1,112 @@
+package com.migrator.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming CSV/TSV reader.
+ *
+ * Follows RFC 4180 quoting: fields may be wrapped in double quotes,
+ * a doubled quote inside a quoted field is a literal quote, and
+ * quoted fields may span lines. An unquoted empty field is returned
+ * as null, a quoted empty field ("") as an empty string.
+ *
+ * Used for bulk-load migrations on databases without a native bulk
+ * API and to read header lines.
+ */
+public class DelimitedReader implements Closeable {
+
+    private final BufferedReader reader;
+    private final char delimiter;
+
+    /** Line number of the last record returned (one-based) */
+    private long lineNumber;
+
+    public DelimitedReader(Reader reader, char delimiter) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * @return Fields of the next record, or null at end of input
+     * @throws IOException when reading fails or a quote is not closed
+     */
+    public String[] next() throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        lineNumber++;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        int i = 0;
+
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                // Quoted field continues on the next line
+                line = reader.readLine();
+                if (line == null) {
+                    throw new IOException("Unterminated quoted field starting before line " + lineNumber);
+                }
+                lineNumber++;
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+
+            char c = line.charAt(i++);
+
+            if (quoted) {
+                if (c == '"') {
+                    if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == delimiter) {
+                fields.add(value(field, wasQuoted));
+                field.setLength(0);
+                wasQuoted = false;
+            } else {
+                field.append(c);
+            }
+        }
+
+        fields.add(value(field, wasQuoted));
+        return fields.toArray(new String[0]);
+    }
+
+    /** @return Line number of the last record returned */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    private static String value(StringBuilder field, boolean wasQuoted) {
+        if (field.isEmpty() && !wasQuoted) {
+            return null;
+        }
+        return field.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,90 @@
+package com.migrator.util;
+
+import java.util.Comparator;
+
+/**
+ * Ordering of migration versions.
+ *
+ * Versions made only of digits (e.g. 202501100930) compare by numeric
+ * value, so "9" sorts before "10". They always sort before versions
+ * containing other characters, which compare as plain strings.
+ *
+ * For the usual fixed-width YYYYMMDDHHMM timestamps this is the same
+ * as string order.
+ */
+public final class VersionOrder {
+
+    /** Longest digit string that always fits in a long */
+    private static final int MAX_NUMERIC_LENGTH = 18;
+
+    public static final Comparator<String> COMPARATOR = VersionOrder::compare;
+
+    private VersionOrder() {
+    }
+
+    public static int compare(String a, String b) {
+        boolean numericA = isDigits(a);
+        boolean numericB = isDigits(b);
+
+        if (numericA != numericB) {
+            return numericA ? -1 : 1;
+        }
+        if (!numericA) {
+            return a.compareTo(b);
+        }
+
+        // Compare digit strings by value without parsing them
+        String x = stripLeadingZeros(a);
+        String y = stripLeadingZeros(b);
+        if (x.length() != y.length()) {
+            return Integer.compare(x.length(), y.length());
+        }
+        int result = x.compareTo(y);
+        return result != 0 ? result : a.compareTo(b);
+    }
+
+    /**
+     * Returns the version as a long when it is a canonical number: only
+     * digits, no leading zero and short enough to fit. Such versions
+     * convert back to the same string.
+     *
+     * @return Numeric value, or -1 when the version is not canonical
+     */
+    public static long toLong(String version) {
+        int n = version.length();
+        if (n == 0 || n > MAX_NUMERIC_LENGTH || (n > 1 && version.charAt(0) == '0')) {
+            return -1;
+        }
+
+        long value = 0;
+        for (int i = 0; i < n; i++) {
+            char c = version.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigits(String s) {
+        if (s.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String stripLeadingZeros(String s) {
+        int i = 0;
+        while (i < s.length() - 1 && s.charAt(i) == '0') {
+            i++;
+        }
+        return s.substring(i);
+    }
+}